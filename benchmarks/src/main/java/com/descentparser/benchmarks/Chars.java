@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the chars a benchmark reads, JMH reports them as chars/s next to
+ * ops/s and Main turns them into ns per char.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Chars {
+
+    public long chars;
+
+    @Setup(Level.Iteration)
+    public void clean() {
+        chars = 0;
+    }
+}
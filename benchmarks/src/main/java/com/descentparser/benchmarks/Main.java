@@ -0,0 +1,63 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import java.util.Collection;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, JMH command line options are
+ * accepted, then prints ns per char of every run.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class Main {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions parent = new CommandLineOptions(args);
+        Collection<RunResult> results = new Runner(new OptionsBuilder()
+                .parent(parent)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+
+        boolean header = false;
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            Result chars = result.getSecondaryResults().get("chars");
+            if (chars == null || chars.getScore() == 0) {
+                continue;
+            }
+            if (!header) {
+                System.out.println();
+                System.out.printf("%-45s %-12s %10s %8s %12s%n", "Benchmark", "Workload", "Size", "Accepted", "ns/char");
+                header = true;
+            }
+            String benchmark = params.getBenchmark();
+            System.out.printf("%-45s %-12s %10s %8s %12.3f%n",
+                    benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1),
+                    params.getParam("workload"), params.getParam("size"), params.getParam("accepted"),
+                    1e9 / chars.getScore());
+        }
+    }
+}
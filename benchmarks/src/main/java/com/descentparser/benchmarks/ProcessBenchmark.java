@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import com.descentparser.grammar.Grammar;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Grammar.processGrammar over synthetic grammars, Scaling gives the time of
+ * every phase.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ProcessBenchmark {
+
+    @Param({"16", "64", "256"})
+    public int nonTerminals;
+
+    @Param({"3"})
+    public int alternatives;
+
+    @Param({"0.3"})
+    public double density;
+
+    private ArrayList<String> productions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        productions = new SyntheticGrammar(nonTerminals, alternatives, density, density, density).productions(0);
+    }
+
+    @Benchmark
+    public Grammar processGrammar() {
+        Grammar grammar = new Grammar(new ArrayList(productions));
+        grammar.processGrammar();
+        return grammar;
+    }
+}
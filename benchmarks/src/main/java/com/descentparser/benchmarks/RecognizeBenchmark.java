@@ -0,0 +1,91 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import com.descentparser.codegen.SpecializedGrammar;
+import com.descentparser.grammar.CompiledGrammar;
+import com.descentparser.grammar.ParseContext;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Recognition without traces, from 10 chars to 10 MB, through the MTable
+ * loop and through the specialized class.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RecognizeBenchmark {
+
+    @Param({"Expressions", "Brackets", "Lists"})
+    public Workload workload;
+
+    @Param({"10", "1000", "100000", "10000000"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean accepted;
+
+    private CompiledGrammar grammar;
+    private SpecializedGrammar specialized;
+    private ParseContext context;
+    private String input;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        grammar = workload.grammar().getCompiled();
+        specialized = new SpecializedGrammar(grammar);
+        context = new ParseContext();
+        input = workload.input(size, accepted);
+        if (grammar.recognize(input) != accepted || specialized.recognize(input) != accepted) {
+            throw new IllegalStateException(workload + " gives a wrong verdict.");
+        }
+    }
+
+    @Benchmark
+    public boolean recognize(Chars chars) {
+        chars.chars += input.length();
+        return grammar.recognize(input);
+    }
+
+    @Benchmark
+    public boolean recognizeWithContext(Chars chars) {
+        chars.chars += input.length();
+        return grammar.recognize(input, context);
+    }
+
+    @Benchmark
+    public boolean specialized(Chars chars) {
+        chars.chars += input.length();
+        return specialized.recognize(input);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import com.descentparser.grammar.Grammar;
+import com.descentparser.grammar.Phase;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Measures how Grammar.processGrammar scales with SyntheticGrammar. Sizes
+ * double from 8 non terminals, every size is processed several times and
+ * the median of each phase is kept, retained heap is what a processed
+ * grammar keeps alive after a full GC.
+ *
+ * Phases whose time grows faster than n^1.2 are flagged, and so is the
+ * retained heap, where n is the count of productions and the exponent is
+ * fitted on a log-log scale.
+ *
+ * Arguments, all optional: max non terminals, alternatives, shared
+ * prefixes, left recursion, epsilons and a CSV file to chart.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class Scaling {
+
+    private static final int RUNS = 5;
+    private static final double SUPERLINEAR = 1.2;
+    private static final long FLOOR = 50_000;
+
+    public static void main(String[] args) throws FileNotFoundException {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : 512;
+        int alternatives = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        double shared = args.length > 2 ? Double.parseDouble(args[2]) : 0.3;
+        double recursion = args.length > 3 ? Double.parseDouble(args[3]) : 0.3;
+        double epsilons = args.length > 4 ? Double.parseDouble(args[4]) : 0.3;
+        PrintStream csv = args.length > 5 ? new PrintStream(args[5]) : null;
+
+        Phase[] phases = Phase.values();
+        ArrayList<Integer> sizes = new ArrayList();
+        ArrayList<long[]> times = new ArrayList();
+
+        StringBuilder header = new StringBuilder("heads,productions,rows,columns");
+        for (Phase phase : phases) {
+            header.append(',').append(phase).append("_us");
+        }
+        header.append(",total_us,retained_kb");
+        System.out.println(header);
+        if (csv != null) {
+            csv.println(header);
+        }
+
+        // Warms up the JIT on a middle size so the first rows aren't interpreted.
+        for (int i = 0; i < 3; i++) {
+            process(new SyntheticGrammar(Math.min(max, 64), alternatives, shared, recursion, epsilons), i);
+        }
+
+        for (int n = 8; n <= max; n *= 2) {
+            SyntheticGrammar synthetic = new SyntheticGrammar(n, alternatives, shared, recursion, epsilons);
+            long[][] runs = new long[phases.length + 1][RUNS];
+            Grammar grammar = null;
+            for (int run = 0; run < RUNS; run++) {
+                grammar = process(synthetic, run);
+                long total = 0;
+                for (Phase phase : phases) {
+                    runs[phase.ordinal()][run] = grammar.getPhaseTime(phase);
+                    total += grammar.getPhaseTime(phase);
+                }
+                runs[phases.length][run] = total;
+            }
+
+            long[] medians = new long[runs.length + 1];
+            for (int i = 0; i < runs.length; i++) {
+                Arrays.sort(runs[i]);
+                medians[i] = runs[i][RUNS / 2];
+            }
+            sizes.add(synthetic.productions(0).size());
+            times.add(medians);
+
+            StringBuilder row = new StringBuilder();
+            row.append(n).append(',').append(sizes.get(sizes.size() - 1)).append(',')
+                    .append(grammar.nonTerminals.size()).append(',').append(grammar.terminalSymbols.size());
+            for (int i = 0; i < runs.length; i++) {
+                row.append(',').append(medians[i] / 1000);
+            }
+            grammar = null;
+            medians[runs.length] = retained(synthetic);
+            row.append(',').append(medians[runs.length] / 1024);
+            System.out.println(row);
+            if (csv != null) {
+                csv.println(row);
+            }
+        }
+        if (csv != null) {
+            csv.close();
+        }
+
+        if (sizes.size() < 2) {
+            return;
+        }
+        System.out.println();
+        for (int i = 0; i <= phases.length + 1; i++) {
+            String name = i < phases.length ? phases[i].toString() : i == phases.length ? "Total" : "Heap";
+            double exponent = exponent(sizes, times, i);
+            if (Double.isNaN(exponent)) {
+                System.out.printf("%-9s too small to fit%n", name);
+            } else {
+                System.out.printf("%-9s grows as n^%.2f%s%n", name, exponent,
+                        exponent > SUPERLINEAR ? "  SUPERLINEAR" : "");
+            }
+        }
+    }
+
+    /**
+     * Fits log(value) = e * log(n) + c over the sizes whose value is above
+     * FLOOR, nanoseconds or bytes, smaller values are mostly noise.
+     *
+     * @return e, NaN if less than two sizes are above FLOOR.
+     */
+    private static double exponent(ArrayList<Integer> sizes, ArrayList<long[]> times, int phase) {
+        int count = 0;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            long time = times.get(i)[phase];
+            if (time >= FLOOR) {
+                double x = Math.log(sizes.get(i));
+                double y = Math.log(time);
+                count++;
+                sx += x;
+                sy += y;
+                sxx += x * x;
+                sxy += x * y;
+            }
+        }
+        if (count < 2) {
+            return Double.NaN;
+        }
+        return (count * sxy - sx * sy) / (count * sxx - sx * sx);
+    }
+
+    private static Grammar process(SyntheticGrammar synthetic, long seed) {
+        Grammar grammar = new Grammar(synthetic.productions(seed));
+        grammar.processGrammar();
+        if (grammar.getCompiled() == null || grammar.heads.isEmpty()) {
+            throw new IllegalStateException("Synthetic grammar wasn't processed.");
+        }
+        return grammar;
+    }
+
+    /**
+     * Returns the heap bytes a processed grammar keeps alive.
+     */
+    private static long retained(SyntheticGrammar synthetic) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ArrayList<String> productions = synthetic.productions(0);
+        collect();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        Grammar grammar = new Grammar(productions);
+        grammar.processGrammar();
+        collect();
+        long after = memory.getHeapMemoryUsage().getUsed();
+        if (grammar.getCompiled() == null) {
+            throw new IllegalStateException("Synthetic grammar wasn't processed.");
+        }
+        return Math.max(0, after - before);
+    }
+
+    private static void collect() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+    }
+}
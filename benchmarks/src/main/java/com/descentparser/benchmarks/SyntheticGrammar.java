@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Random grammars which are LL(1) once Factoring and Recursion are done.
+ * Productions use the spaced notation, heads are N0 to Nn-1 and N0 is the
+ * start symbol.
+ *
+ * Every alternative starts with a terminal of its own, or with the one of
+ * the alternative before it when they share a prefix, and each non
+ * terminal in a body is followed by a terminal used nowhere else. So first
+ * sets of alternatives are disjoint and follow sets never meet the first
+ * sets they are checked against.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class SyntheticGrammar {
+
+    private final int nonTerminals;
+    private final int alternatives;
+    private final double sharedPrefixes;
+    private final double leftRecursion;
+    private final double epsilons;
+
+    /**
+     * SyntheticGrammar builder.
+     *
+     * @param nonTerminals count of heads.
+     * @param alternatives productions per head, not counting the left
+     * recursive and epsilon ones.
+     * @param sharedPrefixes chance that an alternative shares its first
+     * terminal with the one before it.
+     * @param leftRecursion chance that a head gets a left recursive
+     * production.
+     * @param epsilons chance that a head gets an epsilon production.
+     */
+    public SyntheticGrammar(int nonTerminals, int alternatives, double sharedPrefixes,
+            double leftRecursion, double epsilons) {
+        if (nonTerminals < 1 || alternatives < 1) {
+            throw new IllegalArgumentException("A grammar needs one head with one production.");
+        }
+        this.nonTerminals = nonTerminals;
+        this.alternatives = alternatives;
+        this.sharedPrefixes = sharedPrefixes;
+        this.leftRecursion = leftRecursion;
+        this.epsilons = epsilons;
+    }
+
+    /**
+     * Returns the productions of a grammar, the same for the same seed.
+     *
+     * @param seed random seed.
+     * @return productions as Grammar reads them.
+     */
+    public ArrayList<String> productions(long seed) {
+        Random random = new Random(seed);
+        ArrayList<String> productions = new ArrayList();
+
+        for (int i = 0; i < nonTerminals; i++) {
+            String head = "N" + i;
+            String lead = null;
+            for (int j = 0; j < alternatives; j++) {
+                StringBuilder body = new StringBuilder();
+                if (lead != null && random.nextDouble() < sharedPrefixes) {
+                    body.append(lead).append(" b").append(i).append('x').append(j);
+                } else {
+                    lead = "a" + i + "x" + j;
+                    body.append(lead);
+                }
+                if (j == 0 && i + 1 < nonTerminals) {
+                    reference(body, i + 1, i, j, 0);
+                }
+                tail(body, random, i, j);
+                productions.add(head + " -> " + body);
+            }
+
+            if (random.nextDouble() < leftRecursion) {
+                StringBuilder body = new StringBuilder(head).append(" r").append(i);
+                tail(body, random, i, alternatives);
+                productions.add(head + " -> " + body);
+            }
+            if (random.nextDouble() < epsilons) {
+                productions.add(head + " -> &");
+            }
+        }
+        return productions;
+    }
+
+    /**
+     * Appends up to three symbols, non terminals are only referenced after
+     * the current one so every head stays reachable from N0 in order.
+     */
+    private void tail(StringBuilder body, Random random, int i, int j) {
+        int length = random.nextInt(4);
+        for (int k = 1; k <= length; k++) {
+            if (i + 1 < nonTerminals && random.nextBoolean()) {
+                reference(body, i + 1 + random.nextInt(nonTerminals - i - 1), i, j, k);
+            } else {
+                body.append(" c").append(i).append('x').append(j).append('x').append(k);
+            }
+        }
+    }
+
+    private static void reference(StringBuilder body, int target, int i, int j, int k) {
+        body.append(" N").append(target).append(" s").append(i).append('x').append(j).append('x').append(k);
+    }
+}
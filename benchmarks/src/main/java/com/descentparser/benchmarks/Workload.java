@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.benchmarks;
+
+import com.descentparser.grammar.Grammar;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Grammars measured by the benchmarks with generators of their inputs.
+ * Expressions and Lists are left recursive, so they go through Recursion,
+ * and Lists also through Factoring.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public enum Workload {
+
+    Expressions("E->E+T", "E->T", "T->T*F", "T->F", "F->(E)", "F->i") {
+        @Override
+        void append(StringBuilder input, Random random, int size) {
+            input.append('i');
+            while (input.length() < size) {
+                input.append(random.nextBoolean() ? '+' : '*');
+                input.append(random.nextInt(8) == 0 ? "(i+i*i)" : "i");
+            }
+        }
+
+        @Override
+        String spoil(String input) {
+            return input + '+';
+        }
+    },
+    Brackets("S->(S)S", "S->[S]S", "S->&") {
+        @Override
+        void append(StringBuilder input, Random random, int size) {
+            StringBuilder open = new StringBuilder();
+            while (input.length() + open.length() < size) {
+                if (open.length() < 32 && random.nextInt(3) > 0) {
+                    boolean round = random.nextBoolean();
+                    input.append(round ? '(' : '[');
+                    open.append(round ? ')' : ']');
+                } else if (open.length() > 0) {
+                    input.append(open.charAt(open.length() - 1));
+                    open.setLength(open.length() - 1);
+                } else {
+                    input.append("()");
+                }
+            }
+            input.append(open.reverse());
+        }
+
+        @Override
+        String spoil(String input) {
+            return input + '(';
+        }
+    },
+    Lists("L->L,I", "L->I", "I->ab", "I->ac", "I->a") {
+        @Override
+        void append(StringBuilder input, Random random, int size) {
+            String[] items = {"ab", "ac", "a"};
+            input.append(items[random.nextInt(items.length)]);
+            while (input.length() < size) {
+                input.append(',').append(items[random.nextInt(items.length)]);
+            }
+        }
+
+        @Override
+        String spoil(String input) {
+            return input + ',';
+        }
+    };
+
+    private final String[] productions;
+
+    private Workload(String... productions) {
+        this.productions = productions;
+    }
+
+    /**
+     * Returns the grammar productions.
+     *
+     * @return productions as the GUI reads them.
+     */
+    public List<String> getProductions() {
+        return Arrays.asList(productions);
+    }
+
+    /**
+     * Returns the grammar already processed.
+     *
+     * @return processed grammar.
+     */
+    public Grammar grammar() {
+        Grammar grammar = new Grammar(new ArrayList(getProductions()));
+        grammar.processGrammar();
+        return grammar;
+    }
+
+    /**
+     * Returns an input of about size chars, the same for the same arguments.
+     *
+     * @param size chars wanted.
+     * @param accepted false for an input rejected at its last char.
+     * @return input.
+     */
+    public String input(int size, boolean accepted) {
+        StringBuilder input = new StringBuilder(size + 64);
+        append(input, new Random(size), accepted ? size : size - 1);
+        return accepted ? input.toString() : spoil(input.toString());
+    }
+
+    abstract void append(StringBuilder input, Random random, int size);
+
+    abstract String spoil(String input);
+}
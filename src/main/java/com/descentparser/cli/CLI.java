@@ -0,0 +1,430 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.cli;
+
+import com.descentparser.grammar.CompiledGrammar;
+import com.descentparser.grammar.Grammar;
+import com.descentparser.grammar.GrammarCache;
+import com.descentparser.grammar.ParseContext;
+import com.descentparser.trace.ParseListener;
+import com.descentparser.trace.TraceLevel;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line entry point which recognizes one input per line without
+ * loading Swing. Verdicts are written in input order as they come, with the
+ * applied productions if asked.
+ *
+ * Exit status is 0 if every input was recognized, 1 if some wasn't and 2
+ * on bad arguments, unreadable files or grammars which can't be processed.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class CLI {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: CLI [options] <grammar file> [input file]",
+            "Recognizes every line of the input file, or of stdin if it is missing or '-'.",
+            "Grammar files ending in " + GrammarCache.EXTENSION + " are read already compiled.",
+            "",
+            "  -d, --derivations   write the productions applied to every input",
+            "  -j, --threads <n>   recognize with n threads, output keeps input order",
+            "  -s, --summary       write throughput and latency to stderr at the end",
+            "  -q, --quiet         don't write verdicts",
+            "  -c, --cache <dir>   keep compiled grammars in dir",
+            "  -h, --help          show this help");
+
+    /**
+     * Lines read and recognized at once when threads are used.
+     */
+    private static final int BLOCK_SIZE = 4096;
+
+    private final CompiledGrammar grammar;
+    private final boolean derivations;
+    private final boolean quiet;
+    private final boolean summary;
+    private final int threads;
+    private final ThreadLocal<ParseContext> contexts;
+    private long[] latencies;
+    private int inputs;
+    private int accepted;
+    private long chars;
+
+    /**
+     * CLI builder.
+     *
+     * @param grammar compiled grammar.
+     * @param derivations true to write applied productions.
+     * @param quiet true to write no verdicts.
+     * @param summary true to measure every input.
+     * @param threads worker threads count, 1 recognizes on the caller.
+     */
+    public CLI(CompiledGrammar grammar, boolean derivations, boolean quiet, boolean summary, int threads) {
+        if (grammar == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        this.grammar = grammar;
+        this.derivations = derivations;
+        this.quiet = quiet;
+        this.summary = summary;
+        this.threads = threads;
+        this.contexts = ThreadLocal.withInitial(ParseContext::new);
+        this.latencies = new long[summary ? BLOCK_SIZE : 0];
+    }
+
+    /**
+     * Recognizes every line of reader.
+     *
+     * @param reader inputs, one per line.
+     * @param writer where verdicts are written.
+     * @return true if every input was recognized.
+     * @throws IOException if reading or writing fails.
+     */
+    public boolean run(BufferedReader reader, Writer writer) throws IOException {
+        if (threads <= 1) {
+            Part part = new Part(1);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                reserve(inputs + 1);
+                String verdict = recognize(line, inputs, part);
+                inputs++;
+                if (!quiet) {
+                    writer.write(verdict);
+                    writer.write(System.lineSeparator());
+                    if (!reader.ready()) {
+                        writer.flush();
+                    }
+                }
+            }
+            merge(part, 0);
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(threads, (task) -> {
+                Thread thread = new Thread(task, "descentparser-cli");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                ArrayList<String> block = new ArrayList(BLOCK_SIZE);
+                ArrayList<Future<Part>> parts = new ArrayList();
+                String line = reader.readLine();
+                while (line != null) {
+                    block.clear();
+                    while (line != null && block.size() < BLOCK_SIZE) {
+                        block.add(line);
+                        line = reader.readLine();
+                    }
+
+                    // Every part writes its own slice of latencies.
+                    int first = inputs;
+                    reserve(first + block.size());
+                    parts.clear();
+                    int step = (block.size() + threads - 1) / threads;
+                    for (int from = 0; from < block.size(); from += step) {
+                        List<String> lines = block.subList(from, Math.min(block.size(), from + step));
+                        int index = first + from;
+                        parts.add(pool.submit(() -> {
+                            Part part = new Part(lines.size());
+                            for (int i = 0; i < lines.size(); i++) {
+                                part.verdicts[i] = recognize(lines.get(i), index + i, part);
+                            }
+                            return part;
+                        }));
+                    }
+                    for (Future<Part> future : parts) {
+                        Part part = future.get();
+                        for (String verdict : part.verdicts) {
+                            if (!quiet) {
+                                writer.write(verdict);
+                                writer.write(System.lineSeparator());
+                            }
+                        }
+                        merge(part, part.verdicts.length);
+                    }
+                    writer.flush();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            } catch (ExecutionException ex) {
+                throw new IllegalStateException(ex.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        writer.flush();
+        return accepted == inputs;
+    }
+
+    /**
+     * Verdicts and counts of consecutive inputs recognized by one thread.
+     */
+    private static final class Part {
+
+        final String[] verdicts;
+        int accepted;
+        long chars;
+
+        Part(int size) {
+            verdicts = new String[size];
+        }
+    }
+
+    /**
+     * Makes room in latencies for count inputs, before any thread writes
+     * them.
+     */
+    private void reserve(int count) {
+        if (summary && count > latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count));
+        }
+    }
+
+    /**
+     * Adds the counts of a part to the totals, on the thread which reads
+     * the input.
+     *
+     * @param part recognized part.
+     * @param count inputs of the part not counted yet.
+     */
+    private void merge(Part part, int count) {
+        accepted += part.accepted;
+        chars += part.chars;
+        inputs += count;
+    }
+
+    /**
+     * Recognizes one input and returns its output line, its counts go to
+     * part.
+     */
+    private String recognize(String input, int index, Part part) {
+        long begin = summary ? System.nanoTime() : 0;
+        boolean verdict;
+        StringBuilder productions = null;
+        if (derivations) {
+            StringBuilder applied = new StringBuilder();
+            verdict = grammar.parse(input, new ParseListener() {
+                @Override
+                public TraceLevel getLevel() {
+                    return TraceLevel.Productions;
+                }
+
+                @Override
+                public void production(String head, String alpha) {
+                    applied.append(applied.length() > 0 ? " " : "").append(head).append("->").append(alpha);
+                }
+            });
+            productions = applied;
+        } else {
+            verdict = grammar.recognize(input, contexts.get());
+        }
+
+        if (summary) {
+            latencies[index] = System.nanoTime() - begin;
+        }
+        if (verdict) {
+            part.accepted++;
+        }
+        part.chars += input.length();
+
+        String result = verdict ? "ACCEPT" : "REJECT";
+        return productions != null ? result + "\t" + productions : result;
+    }
+
+    /**
+     * Writes counts, throughput and latency percentiles.
+     *
+     * @param out where the summary is written.
+     * @param elapsedNanos wall time of the run.
+     */
+    public void printSummary(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        out.printf("inputs %d, accepted %d, rejected %d, chars %d%n", inputs, accepted, inputs - accepted, chars);
+        out.printf("elapsed %.3f s, %.0f inputs/s, %.0f chars/s%n",
+                seconds, seconds > 0 ? inputs / seconds : 0, seconds > 0 ? chars / seconds : 0);
+        if (summary && inputs > 0) {
+            long[] sorted = Arrays.copyOf(latencies, inputs);
+            Arrays.sort(sorted);
+            out.printf("latency us: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                    percentile(sorted, 0.5), percentile(sorted, 0.9), percentile(sorted, 0.99),
+                    percentile(sorted, 0.999), sorted[sorted.length - 1] / 1e3);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)] / 1e3;
+    }
+
+    /**
+     * @param args the command line arguments, see USAGE.
+     */
+    public static void main(String[] args) {
+        System.exit(execute(args));
+    }
+
+    static int execute(String[] args) {
+        boolean derivations = false;
+        boolean quiet = false;
+        boolean summary = false;
+        int threads = 1;
+        File cache = null;
+        ArrayList<String> files = new ArrayList();
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-d":
+                    case "--derivations":
+                        derivations = true;
+                        break;
+                    case "-q":
+                    case "--quiet":
+                        quiet = true;
+                        break;
+                    case "-s":
+                    case "--summary":
+                        summary = true;
+                        break;
+                    case "-j":
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        if (threads < 1) {
+                            throw new IllegalArgumentException("Threads must be positive.");
+                        }
+                        break;
+                    case "-c":
+                    case "--cache":
+                        cache = new File(args[++i]);
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return 0;
+                    default:
+                        if (args[i].startsWith("-") && !args[i].equals("-")) {
+                            throw new IllegalArgumentException("Unknown option " + args[i] + ".");
+                        }
+                        files.add(args[i]);
+                }
+            }
+            if (files.isEmpty() || files.size() > 2) {
+                throw new IllegalArgumentException("Expected a grammar file and an optional input file.");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException ex) {
+            System.err.println(ex instanceof ArrayIndexOutOfBoundsException ? "Missing option value." : ex.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            CompiledGrammar grammar = load(new File(files.get(0)), cache);
+            CLI cli = new CLI(grammar, derivations, quiet, summary, threads);
+            InputStream in = files.size() < 2 || files.get(1).equals("-")
+                    ? System.in : Files.newInputStream(new File(files.get(1)).toPath());
+
+            long begin = System.nanoTime();
+            boolean all;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                all = cli.run(reader, writer);
+            }
+            if (summary) {
+                cli.printSummary(System.err, System.nanoTime() - begin);
+            }
+            return all ? 0 : 1;
+        } catch (IOException | IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            return 2;
+        } catch (RuntimeException ex) {
+            ex.printStackTrace();
+            return 2;
+        }
+    }
+
+    /**
+     * Reads a compiled grammar or processes a grammar source, blank lines of
+     * the source are skipped. MTable conflicts found processing it are
+     * reported on stderr.
+     *
+     * @param file grammar file.
+     * @param cache cache directory, null to process sources every time.
+     * @return compiled grammar.
+     * @throws IOException if the file can't be read.
+     * @throws IllegalArgumentException if the grammar can't be processed, the
+     * message tells the file and the line when it is known.
+     */
+    static CompiledGrammar load(File file, File cache) throws IOException, IllegalArgumentException {
+        if (file.getName().endsWith(GrammarCache.EXTENSION)) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                return CompiledGrammar.read(in);
+            }
+        }
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        ArrayList<String> productions = new ArrayList();
+        ArrayList<Integer> numbers = new ArrayList();
+        for (int i = 0; i < lines.size(); i++) {
+            if (!lines.get(i).isBlank()) {
+                productions.add(lines.get(i));
+                numbers.add(i + 1);
+            }
+        }
+        if (productions.isEmpty()) {
+            throw new IllegalArgumentException("Grammar " + file + " has no productions.");
+        }
+
+        Grammar grammar = new Grammar(productions);
+        int misshapen = grammar.getMisshapenIndex();
+        if (misshapen >= 0) {
+            throw new IllegalArgumentException(file + ":" + numbers.get(misshapen)
+                    + ": Production " + productions.get(misshapen) + " is misshapen.");
+        }
+        CompiledGrammar compiled;
+        try {
+            if (cache != null) {
+                compiled = new GrammarCache(cache).load(productions, grammar);
+            } else {
+                grammar.processGrammar();
+                compiled = grammar.getCompiled();
+            }
+        } catch (NullPointerException | IllegalArgumentException ex) {
+            // Simbols without productions and productions like "A->A" are reported for the whole file.
+            throw new IllegalArgumentException(file + ": " + ex.getMessage(), ex);
+        }
+        // Cached grammars were reported when they were processed.
+        if (grammar.getCompiled() != null && grammar.getConflictCount() > 0) {
+            System.err.println(file + ": MTable has " + grammar.getConflictCount()
+                    + " conflicting cells, the first production of each is kept.");
+        }
+        return compiled;
+    }
+}
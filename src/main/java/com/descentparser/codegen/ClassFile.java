@@ -0,0 +1,324 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Writes the few class file structures SpecializedGrammar needs. Classes
+ * are version 49, which is verified by type inference, so methods don't
+ * need stack map frames.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+final class ClassFile {
+
+    static final int PUBLIC = 0x0001;
+    static final int PRIVATE = 0x0002;
+    static final int PROTECTED = 0x0004;
+    static final int FINAL = 0x0010;
+    static final int SUPER = 0x0020;
+
+    private static final int VERSION = 49;
+
+    private final ByteArrayOutputStream pool;
+    private final DataOutputStream poolOut;
+    private final HashMap<String, Integer> entries;
+    private int poolCount;
+    private final int thisClass;
+    private final int superClass;
+    private final int access;
+    private final ArrayList<byte[]> methods;
+
+    /**
+     * ClassFile builder.
+     *
+     * @param access class access flags.
+     * @param name internal name of the class.
+     * @param superName internal name of the super class.
+     */
+    ClassFile(int access, String name, String superName) {
+        pool = new ByteArrayOutputStream();
+        poolOut = new DataOutputStream(pool);
+        entries = new HashMap();
+        poolCount = 1;
+        methods = new ArrayList();
+        this.access = access | SUPER;
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+    }
+
+    private int entry(String key, int tag, Object... values) {
+        Integer index = entries.get(key);
+        if (index != null) {
+            return index;
+        }
+
+        try {
+            poolOut.writeByte(tag);
+            for (Object value : values) {
+                if (value instanceof String) {
+                    poolOut.writeUTF((String) value);
+                } else if (tag == 3) {
+                    poolOut.writeInt((Integer) value);
+                } else {
+                    poolOut.writeShort((Integer) value);
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        entries.put(key, poolCount);
+        if (poolCount == 0xFFFF) {
+            throw new IllegalArgumentException("Constant pool too large.");
+        }
+        return poolCount++;
+    }
+
+    int utf8(String value) {
+        return entry("U" + value, 1, value);
+    }
+
+    int integer(int value) {
+        return entry("I" + value, 3, value);
+    }
+
+    int classRef(String name) {
+        return entry("C" + name, 7, utf8(name));
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        return entry("N" + name + ' ' + descriptor, 12, utf8(name), utf8(descriptor));
+    }
+
+    int fieldRef(String owner, String name, String descriptor) {
+        return entry("F" + owner + '.' + name + ' ' + descriptor, 9, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    int methodRef(String owner, String name, String descriptor) {
+        return entry("M" + owner + '.' + name + ' ' + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+    }
+
+    /**
+     * Adds a method.
+     *
+     * @param access method access flags.
+     * @param name method name.
+     * @param descriptor method descriptor.
+     * @param code method body.
+     */
+    void method(int access, String name, String descriptor, Code code) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            byte[] body = code.toByteArray();
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + body.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        methods.add(bytes.toByteArray());
+    }
+
+    /**
+     * Returns the class file bytes.
+     *
+     * @return class file.
+     */
+    byte[] toByteArray() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolCount);
+            pool.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Method body with labels, jumps are patched on toByteArray.
+     */
+    static final class Code {
+
+        static final int ICONST_0 = 0x03;
+        static final int ICONST_1 = 0x04;
+        static final int ALOAD_0 = 0x2A;
+        static final int IRETURN = 0xAC;
+        static final int RETURN = 0xB1;
+        static final int IFEQ = 0x99;
+        static final int IF_ICMPNE = 0xA0;
+        static final int GOTO = 0xA7;
+        static final int GETFIELD = 0xB4;
+        static final int INVOKEVIRTUAL = 0xB6;
+        static final int INVOKESPECIAL = 0xB7;
+
+        private byte[] code;
+        private int length;
+        private final ArrayList<Integer> labels;
+        private final ArrayList<int[]> jumps;
+        int maxStack;
+        int maxLocals;
+
+        Code(int maxStack, int maxLocals) {
+            code = new byte[64];
+            labels = new ArrayList();
+            jumps = new ArrayList();
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        private void u1(int value) {
+            if (length == code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+            code[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        private void u4(int value) {
+            u2(value >> 16);
+            u2(value);
+        }
+
+        /**
+         * Adds an instruction without operands.
+         */
+        void op(int opcode) {
+            u1(opcode);
+        }
+
+        /**
+         * Adds an instruction with a constant pool operand.
+         */
+        void op(int opcode, int index) {
+            u1(opcode);
+            u2(index);
+        }
+
+        /**
+         * Pushes an int, pool is used for values beyond a short.
+         */
+        void push(ClassFile file, int value) {
+            if (value >= -1 && value <= 5) {
+                u1(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                u1(0x10);
+                u1(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                u1(0x11);
+                u2(value);
+            } else {
+                u1(0x13);
+                u2(file.integer(value));
+            }
+        }
+
+        /**
+         * Returns a new label, it must be marked once.
+         */
+        int label() {
+            labels.add(-1);
+            return labels.size() - 1;
+        }
+
+        void mark(int label) {
+            labels.set(label, length);
+        }
+
+        /**
+         * Adds a jump to a label.
+         */
+        void jump(int opcode, int label) {
+            jumps.add(new int[]{length, length + 1, 2, label});
+            u1(opcode);
+            u2(0);
+        }
+
+        /**
+         * Adds a tableswitch over low to low + targets.length - 1.
+         */
+        void tableSwitch(int low, int[] targets, int otherwise) {
+            int start = length;
+            u1(0xAA);
+            while (length % 4 != 0) {
+                u1(0);
+            }
+            jumps.add(new int[]{start, length, 4, otherwise});
+            u4(0);
+            u4(low);
+            u4(low + targets.length - 1);
+            for (int target : targets) {
+                jumps.add(new int[]{start, length, 4, target});
+                u4(0);
+            }
+        }
+
+        byte[] toByteArray() {
+            for (int[] jump : jumps) {
+                int offset = labels.get(jump[3]) - jump[0];
+                if (jump[2] == 2) {
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new IllegalArgumentException("Method too large.");
+                    }
+                    code[jump[1]] = (byte) (offset >> 8);
+                    code[jump[1] + 1] = (byte) offset;
+                } else {
+                    for (int i = 0; i < 4; i++) {
+                        code[jump[1] + i] = (byte) (offset >> (24 - 8 * i));
+                    }
+                }
+            }
+            if (length > 0xFFFF) {
+                throw new IllegalArgumentException("Method too large.");
+            }
+            return Arrays.copyOf(code, length);
+        }
+    }
+}
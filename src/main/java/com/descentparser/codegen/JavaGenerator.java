@@ -0,0 +1,337 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.codegen;
+
+import com.descentparser.grammar.CompiledGrammar;
+import com.descentparser.grammar.Grammar;
+import com.descentparser.grammar.MTable;
+import com.descentparser.tools.FileTools;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Turns a compiled grammar into the Java source of a recursive descent
+ * recognizer. Every non terminal gets one method which switches on the
+ * lookahead with the cases of its MTable row, so inputs are recognized
+ * without any table lookup. A production ending with its own head loops
+ * instead of calling itself, so lists don't grow the call stack.
+ *
+ * Generated recognizers give the same verdicts than CompiledGrammar: '&amp;'
+ * in the input is skipped, a non terminal in the input matches itself and
+ * "$" ends the input.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class JavaGenerator {
+
+    private final CompiledGrammar grammar;
+
+    /**
+     * JavaGenerator builder.
+     *
+     * @param grammar processed grammar.
+     */
+    public JavaGenerator(Grammar grammar) {
+        this(grammar.getCompiled());
+    }
+
+    /**
+     * JavaGenerator builder.
+     *
+     * @param grammar compiled grammar.
+     */
+    public JavaGenerator(CompiledGrammar grammar) {
+        if (grammar == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        this.grammar = grammar;
+    }
+
+    /**
+     * Generates the recognizer source.
+     *
+     * @param packageName package of the recognizer, empty for the default
+     * package.
+     * @param className simple name of the recognizer.
+     * @return Java source.
+     */
+    public String generate(String packageName, String className) {
+        int T = grammar.getTerminalCount();
+        int N = grammar.getNonTerminalCount();
+        StringBuilder out = new StringBuilder();
+
+        out.append("// Generated by DescentParser JavaGenerator, do not edit.\n");
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n");
+        }
+        out.append("\n/**\n * Recursive descent recognizer of the grammar:\n * <pre>\n");
+        for (int id = 0; id < grammar.getProductionCount(); id++) {
+            out.append(" * ").append(escapeComment(grammar.getNonTerminal(grammar.getProductionHead(id))
+                    + "->" + grammar.getProductionAlpha(id))).append('\n');
+        }
+        out.append(" * </pre>\n */\n");
+        out.append("public final class ").append(className).append(" {\n\n");
+        out.append("    private static final int NONE = -1;\n");
+        out.append("    private static final int TERMINALS = ").append(T).append(";\n");
+        out.append("    private static final int END = ").append(grammar.getColumn("$")).append(";\n\n");
+        out.append("    private final CharSequence str;\n");
+        out.append("    private final int[] tokens;\n");
+        out.append("    private final int length;\n");
+        out.append("    private int offset;\n");
+        out.append("    private int la;\n\n");
+
+        out.append("    private ").append(className).append("(CharSequence str, int[] tokens, int length) {\n");
+        out.append("        this.str = str;\n");
+        out.append("        this.tokens = tokens;\n");
+        out.append("        this.length = length;\n");
+        out.append("        la = read();\n");
+        out.append("    }\n\n");
+
+        out.append("    /**\n     * Determines whether the grammar recognizes str.\n     *\n");
+        out.append("     * @param str string to recognize.\n     * @return true if str is recognized.\n     */\n");
+        out.append("    public static boolean recognize(CharSequence str) {\n");
+        out.append("        return new ").append(className).append("(str, null, str.length()).start();\n");
+        out.append("    }\n\n");
+        out.append("    /**\n     * Determines whether the grammar recognizes a token stream.\n     *\n");
+        out.append("     * @param tokens terminal column ids.\n     * @param length count of tokens to read.\n");
+        out.append("     * @return true if the tokens are recognized.\n     */\n");
+        out.append("    public static boolean recognize(int[] tokens, int length) {\n");
+        out.append("        return new ").append(className).append("(null, tokens, length).start();\n");
+        out.append("    }\n\n");
+
+        out.append("    private boolean start() {\n");
+        if (N > 0) {
+            out.append("        try {\n");
+            out.append("            return ").append(method(0)).append("() && la == END;\n");
+            out.append("        } catch (StackOverflowError ex) {\n");
+            out.append("            throw new IllegalStateException(\"Input nests too deep.\", ex);\n");
+            out.append("        }\n");
+        } else {
+            out.append("        return false;\n");
+        }
+        out.append("    }\n\n");
+
+        appendRead(out, T, N);
+
+        out.append("    private void advance() {\n");
+        out.append("        offset += tokens != null ? 1 : Character.charCount(Character.codePointAt(str, offset));\n");
+        out.append("        la = read();\n");
+        out.append("    }\n");
+
+        for (int row = 0; row < N; row++) {
+            appendMethod(out, row, T);
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Appends the method which reads the lookahead, code points are
+     * translated with a switch.
+     */
+    private void appendRead(StringBuilder out, int T, int N) {
+        TreeMap<Integer, Integer> symbols = new TreeMap();
+        for (int symbol = T + N - 1; symbol >= 0; symbol--) {
+            String name = symbol < T ? grammar.getTerminal(symbol) : grammar.getNonTerminal(symbol - T);
+            if (name.codePointCount(0, name.length()) == 1 && name.codePointAt(0) != '&') {
+                symbols.put(name.codePointAt(0), symbol);
+            }
+        }
+
+        out.append("    private int read() {\n");
+        out.append("        if (tokens != null) {\n");
+        out.append("            int token = offset < length ? tokens[offset] : -1;\n");
+        out.append("            return token < 0 ? END : token < TERMINALS ? token : NONE;\n");
+        out.append("        }\n");
+        out.append("        while (offset < length) {\n");
+        out.append("            switch (Character.codePointAt(str, offset)) {\n");
+        out.append("                case '&':\n");
+        out.append("                    offset++;\n");
+        out.append("                    continue;\n");
+        for (Map.Entry<Integer, Integer> entry : symbols.entrySet()) {
+            out.append("                case ").append(entry.getKey()).append(": // ")
+                    .append(escapeComment(new String(Character.toChars(entry.getKey())))).append('\n');
+            out.append("                    return ").append(entry.getValue()).append(";\n");
+        }
+        out.append("                default:\n");
+        out.append("                    return NONE;\n");
+        out.append("            }\n");
+        out.append("        }\n");
+        out.append("        return END;\n");
+        out.append("    }\n\n");
+    }
+
+    /**
+     * Appends the method of a non terminal, cases selecting the same
+     * production share their body.
+     */
+    private void appendMethod(StringBuilder out, int row, int T) {
+        LinkedHashMap<Integer, List<Integer>> cases = cases(grammar, row);
+
+        boolean loops = false;
+        for (int id : cases.keySet()) {
+            int[] symbols = grammar.getProductionSymbols(id);
+            loops |= symbols.length > 0 && symbols[symbols.length - 1] == T + row;
+        }
+        String indent = loops ? "            " : "        ";
+
+        out.append("\n    /**\n     * ").append(escapeComment(grammar.getNonTerminal(row))).append("\n     */\n");
+        out.append("    private boolean ").append(method(row)).append("() {\n");
+        if (loops) {
+            out.append("        while (true) {\n");
+        }
+        if (readsItself(grammar, row)) {
+            out.append(indent).append("if (la == ").append(T + row).append(") {\n");
+            out.append(indent).append("    advance();\n");
+            out.append(indent).append("    return true;\n");
+            out.append(indent).append("}\n");
+        }
+        out.append(indent).append("switch (la) {\n");
+        for (Map.Entry<Integer, List<Integer>> entry : cases.entrySet()) {
+            for (int column : entry.getValue()) {
+                out.append(indent).append("    case ").append(column).append(": // ")
+                        .append(escapeComment(grammar.getTerminal(column))).append('\n');
+            }
+
+            int id = entry.getKey();
+            out.append(indent).append("        // ").append(escapeComment(grammar.getNonTerminal(row) + "->"
+                    + grammar.getProductionAlpha(id))).append('\n');
+            int[] symbols = grammar.getProductionSymbols(id);
+            boolean tail = false;
+            boolean returns = false;
+            for (int i = 0; i < symbols.length; i++) {
+                int symbol = symbols[i];
+                if (symbol < T) {
+                    if (i > 0) {
+                        out.append(indent).append("        if (la != ").append(symbol).append(") {\n");
+                        out.append(indent).append("            return false;\n");
+                        out.append(indent).append("        }\n");
+                    }
+                    out.append(indent).append("        advance();\n");
+                } else if (i == symbols.length - 1 && symbol == T + row) {
+                    tail = true;
+                } else if (i == symbols.length - 1) {
+                    out.append(indent).append("        return ").append(method(symbol - T)).append("();\n");
+                    returns = true;
+                } else {
+                    out.append(indent).append("        if (!").append(method(symbol - T)).append("()) {\n");
+                    out.append(indent).append("            return false;\n");
+                    out.append(indent).append("        }\n");
+                }
+            }
+            if (tail) {
+                out.append(indent).append("        continue;\n");
+            } else if (!returns) {
+                out.append(indent).append("        return true;\n");
+            }
+        }
+        out.append(indent).append("    default:\n");
+        out.append(indent).append("        return false;\n");
+        out.append(indent).append("}\n");
+        if (loops) {
+            out.append("        }\n");
+        }
+        out.append("    }\n");
+    }
+
+    /**
+     * Groups the filled cells of a MTable row by production, in order of
+     * their first column.
+     */
+    static LinkedHashMap<Integer, List<Integer>> cases(CompiledGrammar grammar, int row) {
+        LinkedHashMap<Integer, List<Integer>> cases = new LinkedHashMap();
+        for (int column = 0; column < grammar.getTerminalCount(); column++) {
+            int id = grammar.getProductionId(row, column);
+            if (id != MTable.NONE) {
+                cases.computeIfAbsent(id, (key) -> new ArrayList()).add(column);
+            }
+        }
+        return cases;
+    }
+
+    /**
+     * Determines whether read can return the stack symbol of a non terminal,
+     * that is its name is one code point which isn't a terminal.
+     */
+    static boolean readsItself(CompiledGrammar grammar, int row) {
+        String name = grammar.getNonTerminal(row);
+        return name.codePointCount(0, name.length()) == 1 && !name.equals("&") && grammar.getColumn(name) == MTable.NONE;
+    }
+
+    private static String method(int row) {
+        return "n" + row;
+    }
+
+    private static String escapeComment(String text) {
+        StringBuilder builder = new StringBuilder();
+        text.codePoints().forEach((c) -> {
+            if (c < 0x20 || c > 0x7E) {
+                builder.append(String.format(c > 0xFFFF ? "\\\\u{%X}" : "\\\\u%04X", c));
+            } else if (c == '/' && builder.length() > 0 && builder.charAt(builder.length() - 1) == '*') {
+                builder.append(" /");
+            } else {
+                builder.append((char) c);
+            }
+        });
+        return builder.toString();
+    }
+
+    /**
+     * Writes the recognizer source under a source root.
+     *
+     * @param sourceRoot directory where package directories start.
+     * @param qualifiedName full name of the recognizer class.
+     * @return written file.
+     * @throws IOException if writing fails.
+     */
+    public File write(File sourceRoot, String qualifiedName) throws IOException {
+        int dot = qualifiedName.lastIndexOf('.');
+        String packageName = dot >= 0 ? qualifiedName.substring(0, dot) : "";
+        String className = qualifiedName.substring(dot + 1);
+
+        File directory = new File(sourceRoot, packageName.replace('.', File.separatorChar));
+        Files.createDirectories(directory.toPath());
+        File file = new File(directory, className + ".java");
+        Files.write(file.toPath(), generate(packageName, className).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Generates a recognizer from a grammar file, used by the
+     * generate-parser build profile.
+     *
+     * @param args grammar file, source root and full class name.
+     * @throws IOException if the grammar can't be read or the source written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: JavaGenerator <grammar file> <source root> <class name>");
+            System.exit(2);
+        }
+
+        Grammar grammar = new Grammar(FileTools.readFile(new File(args[0])));
+        grammar.processGrammar();
+        File file = new JavaGenerator(grammar).write(new File(args[1]), args[2]);
+        System.out.println("Generated " + file);
+    }
+}
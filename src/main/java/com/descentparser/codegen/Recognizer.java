@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.codegen;
+
+import com.descentparser.grammar.MTable;
+import java.util.Arrays;
+
+/**
+ * Base of the classes SpecializedGrammar defines, it reads the input and
+ * keeps the lookahead. One instance recognizes one input.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public abstract class Recognizer {
+
+    /**
+     * Parse stack symbol of the current input item.
+     */
+    protected int la;
+
+    private SpecializedGrammar grammar;
+    private CharSequence str;
+    private int[] tokens;
+    private int length;
+    private int offset;
+
+    /**
+     * Recognizer builder.
+     */
+    protected Recognizer() {
+    }
+
+    /**
+     * Recognizes the start non terminal.
+     *
+     * @return false if the input doesn't match.
+     */
+    protected abstract boolean root();
+
+    /**
+     * Moves to the next input item.
+     */
+    protected final void advance() {
+        offset += tokens != null ? 1 : Character.charCount(Character.codePointAt(str, offset));
+        la = read();
+    }
+
+    private int read() {
+        if (tokens != null) {
+            int token = offset < length ? tokens[offset] : -1;
+            return token < 0 ? grammar.end : token < grammar.terminals ? token : MTable.NONE;
+        }
+
+        while (offset < length) {
+            int codePoint = Character.codePointAt(str, offset);
+            if (codePoint == '&') {
+                offset++;
+            } else if (codePoint < grammar.ascii.length) {
+                return grammar.ascii[codePoint];
+            } else {
+                int i = Arrays.binarySearch(grammar.wideCodePoints, codePoint);
+                return i >= 0 ? grammar.wideSymbols[i] : MTable.NONE;
+            }
+        }
+        return grammar.end;
+    }
+
+    /**
+     * Recognizes an input, either str or tokens is null.
+     */
+    final boolean recognize(SpecializedGrammar grammar, CharSequence str, int[] tokens, int length) {
+        this.grammar = grammar;
+        this.str = str;
+        this.tokens = tokens;
+        this.length = length;
+        la = read();
+        try {
+            return root() && la == grammar.end;
+        } catch (StackOverflowError ex) {
+            throw new IllegalStateException("Input nests too deep.", ex);
+        }
+    }
+}
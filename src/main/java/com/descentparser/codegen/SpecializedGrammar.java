@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.codegen;
+
+import com.descentparser.codegen.ClassFile.Code;
+import com.descentparser.grammar.CompiledGrammar;
+import com.descentparser.grammar.Grammar;
+import com.descentparser.grammar.MTable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiled grammar turned into bytecode at runtime. Like JavaGenerator,
+ * every non terminal gets one method which dispatches on the lookahead
+ * with a tableswitch built from its MTable row, but the class is defined
+ * straight from memory. Nothing but this object refers to the class, so it
+ * is unloaded once the grammar is dropped.
+ *
+ * On Java 15 and later the class is a hidden class, before that it gets a
+ * class loader of its own.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class SpecializedGrammar {
+
+    private static final String NAME = "com/descentparser/codegen/SpecializedRecognizer";
+    private static final String BASE = "com/descentparser/codegen/Recognizer";
+    private static final Method DEFINE_HIDDEN;
+    private static final Object NO_OPTIONS;
+
+    static {
+        Method define = null;
+        Object options = null;
+        try {
+            Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(option, 0);
+            define = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+        } catch (ReflectiveOperationException ex) {
+            // Hidden classes came with Java 15.
+        }
+        DEFINE_HIDDEN = define;
+        NO_OPTIONS = options;
+    }
+
+    private final CompiledGrammar grammar;
+    private final MethodHandle constructor;
+    private final boolean hidden;
+    final int terminals;
+    final int end;
+    final int[] ascii;
+    final int[] wideCodePoints;
+    final int[] wideSymbols;
+
+    /**
+     * SpecializedGrammar builder.
+     *
+     * @param grammar processed grammar.
+     */
+    public SpecializedGrammar(Grammar grammar) {
+        this(grammar.getCompiled());
+    }
+
+    /**
+     * SpecializedGrammar builder.
+     *
+     * @param grammar compiled grammar.
+     * @throws IllegalArgumentException if a non terminal needs a method
+     * larger than the class file format allows.
+     */
+    public SpecializedGrammar(CompiledGrammar grammar) throws IllegalArgumentException {
+        if (grammar == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        this.grammar = grammar;
+        terminals = grammar.getTerminalCount();
+        end = grammar.getColumn("$");
+
+        int N = grammar.getNonTerminalCount();
+        TreeMap<Integer, Integer> symbols = new TreeMap();
+        for (int symbol = terminals + N - 1; symbol >= 0; symbol--) {
+            String name = symbol < terminals ? grammar.getTerminal(symbol) : grammar.getNonTerminal(symbol - terminals);
+            if (name.codePointCount(0, name.length()) == 1 && name.codePointAt(0) != '&') {
+                symbols.put(name.codePointAt(0), symbol);
+            }
+        }
+        ascii = new int[128];
+        Arrays.fill(ascii, MTable.NONE);
+        Map<Integer, Integer> wide = symbols.tailMap(ascii.length);
+        wideCodePoints = new int[wide.size()];
+        wideSymbols = new int[wide.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : symbols.entrySet()) {
+            if (entry.getKey() < ascii.length) {
+                ascii[entry.getKey()] = entry.getValue();
+            } else {
+                wideCodePoints[i] = entry.getKey();
+                wideSymbols[i++] = entry.getValue();
+            }
+        }
+
+        byte[] bytes = generate();
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Class<?> recognizer;
+            if (DEFINE_HIDDEN != null) {
+                lookup = (MethodHandles.Lookup) DEFINE_HIDDEN.invoke(lookup, bytes, true, NO_OPTIONS);
+                recognizer = lookup.lookupClass();
+            } else {
+                recognizer = new Loader().define(bytes);
+            }
+            hidden = DEFINE_HIDDEN != null;
+            constructor = lookup.findConstructor(recognizer, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Recognizer.class));
+        } catch (InvocationTargetException ex) {
+            throw new IllegalStateException(ex.getCause());
+        } catch (ReflectiveOperationException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Class loader of one specialized grammar.
+     */
+    private static final class Loader extends ClassLoader {
+
+        Loader() {
+            super(SpecializedGrammar.class.getClassLoader());
+        }
+
+        Class<?> define(byte[] bytes) {
+            return defineClass(null, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Writes the class, methods are n0 to nN-1 after the non terminal rows.
+     */
+    private byte[] generate() {
+        ClassFile file = new ClassFile(ClassFile.PUBLIC | ClassFile.FINAL, NAME, BASE);
+
+        Code init = new Code(1, 1);
+        init.op(Code.ALOAD_0);
+        init.op(Code.INVOKESPECIAL, file.methodRef(BASE, "<init>", "()V"));
+        init.op(Code.RETURN);
+        file.method(ClassFile.PUBLIC, "<init>", "()V", init);
+
+        Code root = new Code(1, 1);
+        if (grammar.getNonTerminalCount() > 0) {
+            root.op(Code.ALOAD_0);
+            root.op(Code.INVOKESPECIAL, file.methodRef(NAME, "n0", "()Z"));
+        } else {
+            root.op(Code.ICONST_0);
+        }
+        root.op(Code.IRETURN);
+        file.method(ClassFile.PROTECTED, "root", "()Z", root);
+
+        for (int row = 0; row < grammar.getNonTerminalCount(); row++) {
+            file.method(ClassFile.PRIVATE, "n" + row, "()Z", method(file, row));
+        }
+        return file.toByteArray();
+    }
+
+    /**
+     * Writes the method of a non terminal, the same way JavaGenerator does.
+     */
+    private Code method(ClassFile file, int row) {
+        int la = file.fieldRef(BASE, "la", "I");
+        int advance = file.methodRef(BASE, "advance", "()V");
+        Code code = new Code(2, 1);
+        int top = code.label();
+        int fail = code.label();
+        code.mark(top);
+
+        if (JavaGenerator.readsItself(grammar, row)) {
+            int other = code.label();
+            code.op(Code.ALOAD_0);
+            code.op(Code.GETFIELD, la);
+            code.push(file, terminals + row);
+            code.jump(Code.IF_ICMPNE, other);
+            code.op(Code.ALOAD_0);
+            code.op(Code.INVOKEVIRTUAL, advance);
+            code.op(Code.ICONST_1);
+            code.op(Code.IRETURN);
+            code.mark(other);
+        }
+
+        LinkedHashMap<Integer, List<Integer>> cases = JavaGenerator.cases(grammar, row);
+        if (!cases.isEmpty()) {
+            int low = Integer.MAX_VALUE;
+            int high = Integer.MIN_VALUE;
+            for (List<Integer> columns : cases.values()) {
+                low = Math.min(low, columns.get(0));
+                high = Math.max(high, columns.get(columns.size() - 1));
+            }
+            int[] targets = new int[high - low + 1];
+            Arrays.fill(targets, fail);
+            LinkedHashMap<Integer, Integer> labels = new LinkedHashMap();
+            for (Map.Entry<Integer, List<Integer>> entry : cases.entrySet()) {
+                int label = code.label();
+                labels.put(entry.getKey(), label);
+                for (int column : entry.getValue()) {
+                    targets[column - low] = label;
+                }
+            }
+            code.op(Code.ALOAD_0);
+            code.op(Code.GETFIELD, la);
+            code.tableSwitch(low, targets, fail);
+
+            for (Map.Entry<Integer, Integer> entry : labels.entrySet()) {
+                code.mark(entry.getValue());
+                int[] symbols = grammar.getProductionSymbols(entry.getKey());
+                boolean returns = false;
+                for (int i = 0; i < symbols.length && !returns; i++) {
+                    int symbol = symbols[i];
+                    boolean last = i == symbols.length - 1;
+                    if (symbol < terminals) {
+                        if (i > 0) {
+                            code.op(Code.ALOAD_0);
+                            code.op(Code.GETFIELD, la);
+                            code.push(file, symbol);
+                            code.jump(Code.IF_ICMPNE, fail);
+                        }
+                        code.op(Code.ALOAD_0);
+                        code.op(Code.INVOKEVIRTUAL, advance);
+                    } else if (last && symbol == terminals + row) {
+                        code.jump(Code.GOTO, top);
+                        returns = true;
+                    } else {
+                        code.op(Code.ALOAD_0);
+                        code.op(Code.INVOKESPECIAL, file.methodRef(NAME, "n" + (symbol - terminals), "()Z"));
+                        if (last) {
+                            code.op(Code.IRETURN);
+                            returns = true;
+                        } else {
+                            code.jump(Code.IFEQ, fail);
+                        }
+                    }
+                }
+                if (!returns) {
+                    code.op(Code.ICONST_1);
+                    code.op(Code.IRETURN);
+                }
+            }
+        }
+
+        code.mark(fail);
+        code.op(Code.ICONST_0);
+        code.op(Code.IRETURN);
+        return code;
+    }
+
+    /**
+     * Determines whether the grammar recognizes str.
+     *
+     * @param str string to recognize.
+     * @return true if str is recognized.
+     */
+    public boolean recognize(CharSequence str) {
+        return newRecognizer().recognize(this, str, null, str.length());
+    }
+
+    /**
+     * Determines whether the grammar recognizes a token stream.
+     *
+     * @param tokens terminal column ids.
+     * @param length count of tokens to read.
+     * @return true if the tokens are recognized.
+     */
+    public boolean recognize(int[] tokens, int length) {
+        return newRecognizer().recognize(this, null, tokens, length);
+    }
+
+    private Recognizer newRecognizer() {
+        try {
+            return (Recognizer) constructor.invokeExact();
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Get the grammar this one was built from.
+     *
+     * @return compiled grammar.
+     */
+    public CompiledGrammar getGrammar() {
+        return grammar;
+    }
+
+    /**
+     * Determines whether the recognizer class is a hidden class.
+     *
+     * @return false if it has a class loader of its own.
+     */
+    public boolean isHidden() {
+        return hidden;
+    }
+}
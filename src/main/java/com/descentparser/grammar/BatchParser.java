@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Recognizes many inputs against one compiled grammar on a fork join pool,
+ * every worker thread reuses its own parse context.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class BatchParser implements AutoCloseable {
+
+    /**
+     * Inputs parsed by a task without splitting it.
+     */
+    private static final int THRESHOLD = 1024;
+
+    /**
+     * Inputs pulled at once from iterators and streams.
+     */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    private final CompiledGrammar grammar;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<ParseContext> contexts;
+
+    /**
+     * BatchParser builder.
+     *
+     * @param grammar compiled grammar.
+     * @param parallelism worker threads count.
+     */
+    public BatchParser(CompiledGrammar grammar, int parallelism) {
+        this(grammar, parallelism, ParseContext.DEFAULT_STACK_SIZE);
+    }
+
+    /**
+     * BatchParser builder.
+     *
+     * @param grammar compiled grammar.
+     * @param parallelism worker threads count.
+     * @param stackSize initial parse stack size of every worker context.
+     */
+    public BatchParser(CompiledGrammar grammar, int parallelism, int stackSize) {
+        if (grammar == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        this.grammar = grammar;
+        this.pool = new ForkJoinPool(parallelism);
+        this.contexts = ThreadLocal.withInitial(() -> new ParseContext(stackSize));
+    }
+
+    /**
+     * Recognizes every input of the list.
+     *
+     * @param inputs strings to recognize, lists without random access are
+     * copied first.
+     * @return verdicts in input order.
+     */
+    public BatchResult parse(List<? extends CharSequence> inputs) {
+        long begin = System.nanoTime();
+        if (!(inputs instanceof RandomAccess)) {
+            inputs = new ArrayList(inputs);
+        }
+        boolean[] accepted = new boolean[inputs.size()];
+        long chars = run(inputs, accepted, 0);
+        return new BatchResult(accepted, inputs.size(), chars, System.nanoTime() - begin);
+    }
+
+    /**
+     * Recognizes every input of the stream, it is pulled in blocks.
+     *
+     * @param inputs strings to recognize.
+     * @return verdicts in input order.
+     */
+    public BatchResult parse(Stream<? extends CharSequence> inputs) {
+        return parse(inputs.iterator());
+    }
+
+    /**
+     * Recognizes every input of the iterator, it is pulled in blocks.
+     *
+     * @param inputs strings to recognize.
+     * @return verdicts in input order.
+     */
+    public BatchResult parse(Iterator<? extends CharSequence> inputs) {
+        long begin = System.nanoTime();
+        boolean[] accepted = new boolean[BLOCK_SIZE];
+        ArrayList<CharSequence> block = new ArrayList(BLOCK_SIZE);
+        int size = 0;
+        long chars = 0;
+
+        while (inputs.hasNext()) {
+            block.clear();
+            while (block.size() < BLOCK_SIZE && inputs.hasNext()) {
+                block.add(inputs.next());
+            }
+            if (size + block.size() > accepted.length) {
+                accepted = Arrays.copyOf(accepted, Math.max(accepted.length * 2, size + block.size()));
+            }
+            chars += run(block, accepted, size);
+            size += block.size();
+        }
+        return new BatchResult(accepted, size, chars, System.nanoTime() - begin);
+    }
+
+    private long run(List<? extends CharSequence> inputs, boolean[] accepted, int offset) {
+        if (inputs.isEmpty()) {
+            return 0;
+        }
+        ParseTask task = new ParseTask(inputs, accepted, offset, 0, inputs.size());
+        pool.invoke(task);
+        return task.chars;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Recognizes a range of inputs, splitting it while it is bigger than
+     * THRESHOLD.
+     */
+    private class ParseTask extends RecursiveAction {
+
+        private final List<? extends CharSequence> inputs;
+        private final boolean[] accepted;
+        private final int offset;
+        private final int from;
+        private final int to;
+        private long chars;
+
+        ParseTask(List<? extends CharSequence> inputs, boolean[] accepted, int offset, int from, int to) {
+            this.inputs = inputs;
+            this.accepted = accepted;
+            this.offset = offset;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                ParseContext context = contexts.get();
+                for (int i = from; i < to; i++) {
+                    CharSequence input = inputs.get(i);
+                    accepted[offset + i] = grammar.recognize(input, context);
+                    chars += input.length();
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                ParseTask left = new ParseTask(inputs, accepted, offset, from, middle);
+                ParseTask right = new ParseTask(inputs, accepted, offset, middle, to);
+                invokeAll(left, right);
+                chars = left.chars + right.chars;
+            }
+        }
+    }
+}
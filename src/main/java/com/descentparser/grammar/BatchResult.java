@@ -0,0 +1,105 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+/**
+ * Verdicts of a batch in input order and its aggregate throughput.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class BatchResult {
+
+    private final boolean[] accepted;
+    private final int size;
+    private final int acceptedCount;
+    private final long chars;
+    private final long elapsedNanos;
+
+    /**
+     * BatchResult builder.
+     *
+     * @param accepted verdicts, only the first size are used.
+     * @param size inputs count.
+     * @param chars chars count of all inputs.
+     * @param elapsedNanos wall time of the batch.
+     */
+    BatchResult(boolean[] accepted, int size, long chars, long elapsedNanos) {
+        this.accepted = accepted;
+        this.size = size;
+        this.chars = chars;
+        this.elapsedNanos = elapsedNanos;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (accepted[i]) {
+                count++;
+            }
+        }
+        this.acceptedCount = count;
+    }
+
+    /**
+     * Determines whether the input at index was recognized.
+     *
+     * @param index input index.
+     * @return true if the input was recognized.
+     */
+    public boolean isAccepted(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return accepted[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public long getChars() {
+        return chars;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns how many inputs were parsed per second.
+     *
+     * @return inputs per second.
+     */
+    public double getInputsPerSecond() {
+        return elapsedNanos > 0 ? size * 1e9 / elapsedNanos : 0;
+    }
+
+    /**
+     * Returns how many chars were parsed per second.
+     *
+     * @return chars per second.
+     */
+    public double getCharsPerSecond() {
+        return elapsedNanos > 0 ? chars * 1e9 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d inputs, %d accepted, %d chars in %.3f ms (%.0f inputs/s, %.0f chars/s)",
+                size, acceptedCount, chars, elapsedNanos / 1e6, getInputsPerSecond(), getCharsPerSecond());
+    }
+}
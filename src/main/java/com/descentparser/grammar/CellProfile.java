@@ -0,0 +1,246 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Counts the MTable cells the parse loop expands, to find hot derivations
+ * and productions which are never used. Attach it to a grammar with
+ * setProfile.
+ *
+ * Every thread counts into an array of its own, so expansions cost one
+ * increment without synchronization, and snapshots add the arrays up. With
+ * a sampling of n, about one parse in n is counted, picked at random so
+ * periodic traffic isn't aliased, and the rest only pay a countdown.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class CellProfile {
+
+    private final Object grammar;
+    private final String[] nonTerminals;
+    private final String[] terminals;
+    private final int sampling;
+    private final ConcurrentLinkedQueue<Counters> all;
+    private final ThreadLocal<Counters> counters;
+
+    /**
+     * Counters of one thread.
+     */
+    private static final class Counters {
+
+        final long[] cells;
+        long parses;
+        int skip;
+
+        Counters(int size) {
+            cells = new long[size];
+            skip = 1;
+        }
+    }
+
+    /**
+     * CellProfile builder which counts every parse.
+     *
+     * @param grammar grammar to profile.
+     */
+    public CellProfile(CompiledGrammar grammar) {
+        this(grammar, 1);
+    }
+
+    /**
+     * CellProfile builder.
+     *
+     * @param grammar grammar to profile.
+     * @param sampling mean parses per counted parse, 1 counts all of them.
+     */
+    public CellProfile(CompiledGrammar grammar, int sampling) {
+        this(grammar, nonTerminals(grammar), terminals(grammar), sampling);
+    }
+
+    /**
+     * CellProfile builder.
+     *
+     * @param grammar mapped grammar to profile.
+     * @param sampling mean parses per counted parse, 1 counts all of them.
+     */
+    public CellProfile(MappedGrammar grammar, int sampling) {
+        this(grammar, nonTerminals(grammar), terminals(grammar), sampling);
+    }
+
+    private CellProfile(Object grammar, String[] nonTerminals, String[] terminals, int sampling) {
+        if (sampling < 1) {
+            throw new IllegalArgumentException("Sampling must be positive.");
+        }
+        this.grammar = grammar;
+        this.nonTerminals = nonTerminals;
+        this.terminals = terminals;
+        this.sampling = sampling;
+        all = new ConcurrentLinkedQueue();
+        counters = ThreadLocal.withInitial(() -> {
+            Counters own = new Counters(nonTerminals.length * terminals.length);
+            all.add(own);
+            return own;
+        });
+    }
+
+    private static String[] nonTerminals(CompiledGrammar grammar) {
+        String[] names = new String[grammar.getNonTerminalCount()];
+        for (int row = 0; row < names.length; row++) {
+            names[row] = grammar.getNonTerminal(row);
+        }
+        return names;
+    }
+
+    private static String[] terminals(CompiledGrammar grammar) {
+        String[] names = new String[grammar.getTerminalCount()];
+        for (int column = 0; column < names.length; column++) {
+            names[column] = grammar.getTerminal(column);
+        }
+        return names;
+    }
+
+    private static String[] nonTerminals(MappedGrammar grammar) {
+        String[] names = new String[grammar.getNonTerminalCount()];
+        for (int row = 0; row < names.length; row++) {
+            names[row] = grammar.getNonTerminal(row);
+        }
+        return names;
+    }
+
+    private static String[] terminals(MappedGrammar grammar) {
+        String[] names = new String[grammar.getTerminalCount()];
+        for (int column = 0; column < names.length; column++) {
+            names[column] = grammar.getTerminal(column);
+        }
+        return names;
+    }
+
+    /**
+     * Checks the profile was built for grammar.
+     *
+     * @param grammar grammar the profile is attached to.
+     * @throws IllegalArgumentException if it was built for another one.
+     */
+    void check(Object grammar) throws IllegalArgumentException {
+        if (this.grammar != grammar) {
+            throw new IllegalArgumentException("Profile was built for another grammar.");
+        }
+    }
+
+    /**
+     * Decides whether the parse starting on this thread is counted.
+     *
+     * @return cell counters indexed like the MTable cells, null if the parse
+     * isn't counted.
+     */
+    long[] sample() {
+        Counters own = counters.get();
+        if (--own.skip > 0) {
+            return null;
+        }
+        own.skip = sampling == 1 ? 1 : 1 + ThreadLocalRandom.current().nextInt(2 * sampling - 1);
+        own.parses++;
+        return own.cells;
+    }
+
+    /**
+     * Get the mean parses per counted parse.
+     *
+     * @return sampling.
+     */
+    public int getSampling() {
+        return sampling;
+    }
+
+    /**
+     * Returns how many parses were counted.
+     *
+     * @return counted parses, about the total divided by the sampling.
+     */
+    public long getSampledParses() {
+        long parses = 0;
+        for (Counters counters : all) {
+            parses += counters.parses;
+        }
+        return parses;
+    }
+
+    /**
+     * Adds up the counters of every thread. Counts of parses running on
+     * other threads may be missing.
+     *
+     * @return expansions by row and column.
+     */
+    public long[][] snapshot() {
+        long[][] heat = new long[nonTerminals.length][terminals.length];
+        for (Counters counters : all) {
+            for (int row = 0; row < heat.length; row++) {
+                for (int column = 0; column < heat[row].length; column++) {
+                    heat[row][column] += counters.cells[row * terminals.length + column];
+                }
+            }
+        }
+        return heat;
+    }
+
+    /**
+     * Sets every counter back to 0, counts of running parses may survive.
+     */
+    public void reset() {
+        for (Counters counters : all) {
+            Arrays.fill(counters.cells, 0);
+            counters.parses = 0;
+        }
+    }
+
+    /**
+     * Writes a snapshot as CSV, one row per non terminal and one column per
+     * terminal, ready to be drawn as a heatmap.
+     *
+     * @param writer where the snapshot is written.
+     * @throws IOException if writing fails.
+     */
+    public void write(Writer writer) throws IOException {
+        long[][] heat = snapshot();
+        for (String terminal : terminals) {
+            writer.write(',');
+            writer.write(quote(terminal));
+        }
+        writer.write(System.lineSeparator());
+        for (int row = 0; row < heat.length; row++) {
+            writer.write(quote(nonTerminals[row]));
+            for (long count : heat[row]) {
+                writer.write(',');
+                writer.write(Long.toString(count));
+            }
+            writer.write(System.lineSeparator());
+        }
+        writer.flush();
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable index from one code point symbols to their position in a symbols
+ * list, symbols below 128 are resolved through a direct lookup array and the
+ * rest through a sorted array, so lookups never allocate.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+final class CodePointIndex {
+
+    private final int[] ascii;
+    private final int[] wideCodePoints;
+    private final int[] wideIds;
+
+    /**
+     * CodePointIndex builder, symbols longer than one code point are skipped.
+     *
+     * @param symbols symbols list, its order gives the ids.
+     */
+    CodePointIndex(List<String> symbols) {
+        ascii = new int[128];
+        Arrays.fill(ascii, MTable.NONE);
+
+        ArrayList<int[]> wide = new ArrayList();
+        for (int id = 0; id < symbols.size(); id++) {
+            String symbol = symbols.get(id);
+            if (symbol.codePointCount(0, symbol.length()) == 1) {
+                int codePoint = symbol.codePointAt(0);
+                if (codePoint < ascii.length) {
+                    ascii[codePoint] = id;
+                } else {
+                    wide.add(new int[]{codePoint, id});
+                }
+            }
+        }
+
+        wide.sort((x, y) -> Integer.compare(x[0], y[0]));
+        wideCodePoints = new int[wide.size()];
+        wideIds = new int[wide.size()];
+        for (int i = 0; i < wideIds.length; i++) {
+            wideCodePoints[i] = wide.get(i)[0];
+            wideIds[i] = wide.get(i)[1];
+        }
+    }
+
+    /**
+     * Get the id of a code point symbol.
+     *
+     * @param codePoint symbol code point.
+     * @return symbol id or MTable.NONE if codePoint isn't indexed.
+     */
+    int get(int codePoint) {
+        if (codePoint >= 0 && codePoint < ascii.length) {
+            return ascii[codePoint];
+        }
+        int i = Arrays.binarySearch(wideCodePoints, codePoint);
+        return i >= 0 ? wideIds[i] : MTable.NONE;
+    }
+}
@@ -0,0 +1,1098 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import com.descentparser.lexer.Lexer;
+import com.descentparser.trace.ParseListener;
+import com.descentparser.trace.ParseStep;
+import com.descentparser.trace.TraceCollector;
+import com.descentparser.trace.TraceLevel;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Frozen snapshot of a processed grammar: symbols, productions, PRIMERO, next
+ * and MTable held in arrays which are never modified, so any number of
+ * threads can parse against it without locks. The only thing which can be
+ * attached later is a CellProfile, which doesn't change any verdict.
+ *
+ * Parse stack symbols are MTable columns for terminals, MTable rows plus the
+ * columns count for non terminals and EPSILON for '&'.
+ *
+ * If the grammar has a lexer, char inputs are split by it and the parse loop
+ * runs over its tokens instead of over code points.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class CompiledGrammar {
+
+    static final int EPSILON = -2;
+
+    /**
+     * Version of the binary format written by write, streams of other
+     * versions are refused by read.
+     */
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4C4C3147;
+
+    private final String[] nonTerminals;
+    private final String[] terminals;
+    private final Map<String, Integer> rows;
+    private final Map<String, Integer> columns;
+    private final CodePointIndex rowIndex;
+    private final CodePointIndex columnIndex;
+    private final int[] productionHeads;
+    private final String[] alphas;
+    private final int[][] reversedAlphas;
+    private final String[][] first;
+    private final String[][] next;
+    private final int[][] cells;
+    private final int[] rowStarts;
+    private final int start;
+    private final int end;
+    private final Lexer lexer;
+    private final int[] lexerColumns;
+    private volatile CellProfile profile;
+
+    /**
+     * CompiledGrammar builder.
+     *
+     * @param nonTerminals non terminals by row.
+     * @param terminals terminals by column, "$" included.
+     * @param productionHeads head row of every production, productions are
+     * sorted by row.
+     * @param alphas body of every production.
+     * @param reversedAlphas parse stack symbols of every production, reversed.
+     * @param first PRIMERO by row.
+     * @param next next by row.
+     * @param cells index in the productions of its row of the production of
+     * every column, by row. Rows may be shorter or longer than the columns
+     * count, cells past the columns are NONE.
+     * @param lexer lexer which splits char inputs, may be null.
+     * @param shared grammar whose indexes are reused when it has the same
+     * symbol arrays, may be null.
+     */
+    private CompiledGrammar(String[] nonTerminals, String[] terminals, int[] productionHeads, String[] alphas,
+            int[][] reversedAlphas, String[][] first, String[][] next, int[][] cells, Lexer lexer,
+            CompiledGrammar shared) {
+        this.nonTerminals = nonTerminals;
+        this.terminals = terminals;
+        this.productionHeads = productionHeads;
+        this.alphas = alphas;
+        this.reversedAlphas = reversedAlphas;
+        this.first = first;
+        this.next = next;
+        this.cells = cells;
+        boolean sameRows = shared != null && shared.nonTerminals == nonTerminals;
+        boolean sameColumns = shared != null && shared.terminals == terminals;
+        rows = sameRows ? shared.rows : indexOf(nonTerminals);
+        columns = sameColumns ? shared.columns : indexOf(terminals);
+        rowIndex = sameRows ? shared.rowIndex : new CodePointIndex(Arrays.asList(nonTerminals));
+        columnIndex = sameColumns ? shared.columnIndex : new CodePointIndex(Arrays.asList(terminals));
+
+        rowStarts = new int[nonTerminals.length + 1];
+        for (int head : productionHeads) {
+            rowStarts[head + 1]++;
+        }
+        for (int row = 0; row < nonTerminals.length; row++) {
+            rowStarts[row + 1] += rowStarts[row];
+        }
+
+        end = getColumn("$");
+        start = nonTerminals.length > 0 ? terminals.length : MTable.NONE;
+
+        this.lexer = lexer;
+        if (lexer != null && sameColumns && shared.lexer == lexer) {
+            lexerColumns = shared.lexerColumns;
+        } else if (lexer != null) {
+            lexer.compile();
+            lexerColumns = new int[lexer.getRuleCount()];
+            for (int rule = 0; rule < lexerColumns.length; rule++) {
+                String terminal = lexer.getTerminal(rule);
+                int column = terminal != null ? getColumn(terminal) : MTable.NONE;
+                lexerColumns[rule] = column != MTable.NONE ? column : ParseInput.TokenInput.INVALID;
+            }
+        } else {
+            lexerColumns = null;
+        }
+    }
+
+    /**
+     * Freezes a grammar, it must be already processed.
+     *
+     * @param grammar processed grammar.
+     * @return compiled grammar.
+     */
+    static CompiledGrammar compile(Grammar grammar) {
+        MTable mTable = grammar.mTable;
+        String[] nonTerminals = grammar.nonTerminals.toArray(new String[0]);
+        String[] terminals = grammar.terminalSymbols.toArray(new String[0]);
+        Map<String, Integer> rows = indexOf(nonTerminals);
+        Map<String, Integer> columns = indexOf(terminals);
+
+        ArrayList<Integer> heads = new ArrayList();
+        ArrayList<Production> productions = new ArrayList();
+        IdentityHashMap<Production, Integer> ids = new IdentityHashMap();
+        String[][] first = new String[nonTerminals.length][];
+        String[][] next = new String[nonTerminals.length][];
+        for (int row = 0; row < nonTerminals.length; row++) {
+            Head head = grammar.heads.get(nonTerminals[row]);
+            for (Production p : head.getProductions()) {
+                ids.put(p, productions.size());
+                productions.add(p);
+                heads.add(row);
+            }
+            first[row] = head.getFirst().toArray(new String[0]);
+            next[row] = head.getNext().toArray(new String[0]);
+        }
+
+        int[] productionHeads = new int[productions.size()];
+        String[] alphas = new String[productions.size()];
+        int[][] reversedAlphas = new int[productions.size()][];
+        SymbolTable table = grammar.getSymbolTable();
+        for (int id = 0; id < alphas.length; id++) {
+            productionHeads[id] = heads.get(id);
+            alphas[id] = productions.get(id).alpha;
+            reversedAlphas[id] = reversedAlpha(productions.get(id).symbols, table, rows, columns);
+        }
+
+        int[][] cells = new int[nonTerminals.length][terminals.length];
+        int offset = 0;
+        for (int row = 0; row < nonTerminals.length; row++) {
+            for (int column = 0; column < terminals.length; column++) {
+                int id = mTable.getProductionId(mTable.getRow(nonTerminals[row]), mTable.getColumn(terminals[column]));
+                cells[row][column] = id != MTable.NONE ? ids.get(mTable.getProduction(id)) - offset : MTable.NONE;
+            }
+            while (offset < productionHeads.length && productionHeads[offset] == row) {
+                offset++;
+            }
+        }
+
+        return new CompiledGrammar(nonTerminals, terminals, productionHeads, alphas, reversedAlphas,
+                first, next, cells, grammar.getLexer(), null);
+    }
+
+    /**
+     * Translates production symbols into parse stack symbols, reversed.
+     */
+    private static int[] reversedAlpha(int[] symbols, SymbolTable table, Map<String, Integer> rows,
+            Map<String, Integer> columns) {
+        if (symbols.length == 0) {
+            return new int[]{EPSILON};
+        }
+
+        int[] reversed = new int[symbols.length];
+        for (int i = 0; i < symbols.length; i++) {
+            String name = table.getName(symbols[i]);
+            reversed[symbols.length - 1 - i] = table.isTerminal(symbols[i])
+                    ? columns.get(name) : columns.size() + rows.get(name);
+        }
+        return reversed;
+    }
+
+    /**
+     * Freezes a grammar edited after this one was compiled from it. Rows
+     * the edit didn't reach share their MTable cells, PRIMERO and next with
+     * this one, cells hold indexes in the productions of their row so they
+     * stay right when the production ids before them shift.
+     *
+     * @param grammar edited grammar.
+     * @param origins row of this grammar every row is copied from, NONE
+     * for new rows.
+     * @param columnOrigins column of this grammar every column comes from,
+     * NONE for new terminals, null if the terminals didn't change.
+     * @param dirty rows whose productions are compiled again.
+     * @param refreshed rows whose PRIMERO and next are compiled again.
+     * @param rowCells index in the head of the production of every column of
+     * the rows whose cells are compiled again, null for copied rows.
+     * @return compiled grammar.
+     */
+    CompiledGrammar patch(Grammar grammar, int[] origins, int[] columnOrigins, boolean[] dirty, boolean[] refreshed,
+            int[][] rowCells) {
+        String[] nonTerminals = grammar.nonTerminals.toArray(new String[0]);
+        if (Arrays.equals(nonTerminals, this.nonTerminals)) {
+            nonTerminals = this.nonTerminals;
+        }
+        String[] terminals = this.terminals;
+        int[] columnOf = null;
+        int[] moves = new int[0];
+        if (columnOrigins != null) {
+            terminals = grammar.terminalSymbols.toArray(new String[0]);
+            columnOf = new int[this.terminals.length];
+            Arrays.fill(columnOf, MTable.NONE);
+            int count = 0;
+            for (int column = 0; column < columnOrigins.length; column++) {
+                if (columnOrigins[column] != MTable.NONE) {
+                    columnOf[columnOrigins[column]] = column;
+                    count += columnOrigins[column] != column ? 1 : 0;
+                }
+            }
+            moves = new int[count];
+            for (int column = 0; column < columnOrigins.length; column++) {
+                if (columnOrigins[column] != MTable.NONE && columnOrigins[column] != column) {
+                    moves[--count] = column;
+                }
+            }
+        }
+
+        int n = nonTerminals.length;
+        int[] starts = new int[n + 1];
+        for (int row = 0; row < n; row++) {
+            int count = dirty[row] ? grammar.heads.get(nonTerminals[row]).getProductions().size()
+                    : rowStarts[origins[row] + 1] - rowStarts[origins[row]];
+            starts[row + 1] = starts[row] + count;
+        }
+
+        int[] productionHeads = new int[starts[n]];
+        String[] alphas = new String[starts[n]];
+        int[][] reversedAlphas = new int[starts[n]][];
+        String[][] first = new String[n][];
+        String[][] next = new String[n][];
+        int[][] cells = new int[n][];
+        for (int row = 0; row < n; row++) {
+            int origin = origins[row];
+            Arrays.fill(productionHeads, starts[row], starts[row + 1], row);
+            if (!dirty[row]) {
+                int from = rowStarts[origin];
+                System.arraycopy(this.alphas, from, alphas, starts[row], starts[row + 1] - starts[row]);
+                System.arraycopy(this.reversedAlphas, from, reversedAlphas, starts[row], starts[row + 1] - starts[row]);
+                for (int id = starts[row]; columnOf != null && id < starts[row + 1]; id++) {
+                    reversedAlphas[id] = restack(reversedAlphas[id], columnOf, terminals.length);
+                }
+            }
+
+            Head head = refreshed[row] ? grammar.heads.get(nonTerminals[row]) : null;
+            first[row] = head != null ? head.getFirst().toArray(new String[0]) : this.first[origin];
+            next[row] = head != null ? head.getNext().toArray(new String[0]) : this.next[origin];
+            cells[row] = rowCells[row] != null ? rowCells[row] : move(this.cells[origin], moves, columnOrigins);
+        }
+
+        CompiledGrammar compiled = new CompiledGrammar(nonTerminals, terminals, productionHeads, alphas,
+                reversedAlphas, first, next, cells, grammar.getLexer(), this);
+
+        // Dirty bodies are translated once the indexes of the new layout exist.
+        SymbolTable table = grammar.getSymbolTable();
+        for (int row = 0; row < n; row++) {
+            if (dirty[row]) {
+                ArrayList<Production> productions = grammar.heads.get(nonTerminals[row]).getProductions();
+                for (int p = 0; p < productions.size(); p++) {
+                    alphas[starts[row] + p] = productions.get(p).alpha;
+                    reversedAlphas[starts[row] + p] = reversedAlpha(productions.get(p).symbols, table,
+                            compiled.rows, compiled.columns);
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Translates stack symbols into a layout with other columns.
+     *
+     * @param reversed stack symbols of a production.
+     * @param columnOf new column of every old column.
+     * @param T new columns count.
+     * @return translated stack symbols.
+     */
+    private static int[] restack(int[] reversed, int[] columnOf, int T) {
+        int[] symbols = new int[reversed.length];
+        for (int i = 0; i < symbols.length; i++) {
+            int symbol = reversed[i];
+            symbols[i] = symbol == EPSILON ? EPSILON
+                    : symbol < columnOf.length ? columnOf[symbol] : symbol - columnOf.length + T;
+        }
+        return symbols;
+    }
+
+    /**
+     * Moves the cells of a row to the columns they moved to. The row is
+     * only copied if one of them isn't empty.
+     *
+     * @param row cells of the row.
+     * @param moves columns whose terminal comes from another column.
+     * @param columnOrigins old column of every column.
+     * @return cells in the new layout.
+     */
+    private static int[] move(int[] row, int[] moves, int[] columnOrigins) {
+        int[] moved = row;
+        for (int column : moves) {
+            int origin = columnOrigins[column];
+            if (origin < row.length && row[origin] != MTable.NONE) {
+                if (moved == row) {
+                    moved = row.clone();
+                }
+                moved[column] = row[origin];
+                moved[origin] = MTable.NONE;
+            }
+        }
+        return moved;
+    }
+
+    private static Map<String, Integer> indexOf(String[] symbols) {
+        HashMap<String, Integer> index = new HashMap();
+        for (int i = 0; i < symbols.length; i++) {
+            index.put(symbols[i], i);
+        }
+        return Map.copyOf(index);
+    }
+
+    /**
+     * Returns a compiled grammar sharing the tables of this one which splits
+     * char inputs with another lexer.
+     *
+     * @param lexer lexer, null to read inputs by code point.
+     * @return compiled grammar.
+     */
+    public CompiledGrammar withLexer(Lexer lexer) {
+        return new CompiledGrammar(nonTerminals, terminals, productionHeads, alphas, reversedAlphas,
+                first, next, cells, lexer, this);
+    }
+
+    /**
+     * Writes the grammar in the binary format: MAGIC, FORMAT_VERSION and the
+     * length of a body holding the symbols, the productions with their stack
+     * symbols, PRIMERO and next as column ids and the non empty MTable cells
+     * of every row, then the body and its CRC32. The lexer isn't written.
+     *
+     * @param out stream which receives the grammar, it isn't closed.
+     * @throws IOException if writing fails.
+     */
+    public void write(OutputStream out) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(body);
+
+        writeStrings(data, nonTerminals);
+        writeStrings(data, terminals);
+
+        data.writeInt(alphas.length);
+        for (int id = 0; id < alphas.length; id++) {
+            data.writeInt(productionHeads[id]);
+            writeString(data, alphas[id]);
+            writeInts(data, reversedAlphas[id]);
+        }
+
+        for (int row = 0; row < nonTerminals.length; row++) {
+            writeSymbols(data, first[row]);
+            writeSymbols(data, next[row]);
+
+            int count = 0;
+            for (int column = 0; column < terminals.length; column++) {
+                if (getProductionId(row, column) != MTable.NONE) {
+                    count++;
+                }
+            }
+            data.writeInt(count);
+            for (int column = 0; column < terminals.length; column++) {
+                int id = getProductionId(row, column);
+                if (id != MTable.NONE) {
+                    data.writeInt(column);
+                    data.writeInt(id);
+                }
+            }
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(body.toByteArray());
+        DataOutputStream header = new DataOutputStream(new BufferedOutputStream(out));
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        header.writeInt(body.size());
+        body.writeTo(header);
+        header.writeInt((int) checksum.getValue());
+        header.flush();
+    }
+
+    /**
+     * Reads a grammar written by write.
+     *
+     * @param in stream which holds the grammar, it isn't closed nor read
+     * beyond the grammar.
+     * @return compiled grammar without lexer.
+     * @throws IOException if reading fails or the stream isn't an intact
+     * grammar of FORMAT_VERSION.
+     */
+    public static CompiledGrammar read(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != MAGIC) {
+            throw new StreamCorruptedException("Not a compiled grammar.");
+        }
+        int version = header.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported format version " + version + ".");
+        }
+        int length = check(header.readInt(), 0, Integer.MAX_VALUE);
+        byte[] body = header.readNBytes(length);
+        if (body.length != length) {
+            throw new EOFException("Compiled grammar is truncated.");
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(body);
+        if (header.readInt() != (int) checksum.getValue()) {
+            throw new StreamCorruptedException("Compiled grammar checksum mismatch.");
+        }
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(body));
+
+        String[] nonTerminals = readStrings(data);
+        String[] terminals = readStrings(data);
+        int symbols = nonTerminals.length + terminals.length;
+
+        int count = readLength(data);
+        int[] productionHeads = new int[count];
+        String[] alphas = new String[count];
+        int[][] reversedAlphas = new int[count][];
+        int[] starts = new int[nonTerminals.length + 1];
+        for (int id = 0; id < count; id++) {
+            productionHeads[id] = check(data.readInt(), id > 0 ? productionHeads[id - 1] : 0, nonTerminals.length);
+            starts[productionHeads[id] + 1] = id + 1;
+            alphas[id] = readString(data);
+            reversedAlphas[id] = new int[readLength(data)];
+            for (int i = 0; i < reversedAlphas[id].length; i++) {
+                reversedAlphas[id][i] = check(data.readInt(), EPSILON, symbols);
+            }
+        }
+
+        String[][] first = new String[nonTerminals.length][];
+        String[][] next = new String[nonTerminals.length][];
+        int[][] cells = new int[nonTerminals.length][terminals.length];
+        for (int row = 0; row < nonTerminals.length; row++) {
+            starts[row + 1] = Math.max(starts[row + 1], starts[row]);
+            first[row] = readSymbols(data, terminals);
+            next[row] = readSymbols(data, terminals);
+            Arrays.fill(cells[row], MTable.NONE);
+            int filled = readLength(data);
+            for (int i = 0; i < filled; i++) {
+                int column = check(data.readInt(), 0, terminals.length);
+                cells[row][column] = check(data.readInt(), starts[row], starts[row + 1]) - starts[row];
+            }
+        }
+
+        return new CompiledGrammar(nonTerminals, terminals, productionHeads, alphas, reversedAlphas,
+                first, next, cells, null, null);
+    }
+
+    private static void writeString(DataOutputStream data, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static void writeStrings(DataOutputStream data, String[] strs) throws IOException {
+        data.writeInt(strs.length);
+        for (String str : strs) {
+            writeString(data, str);
+        }
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        data.writeInt(values.length);
+        for (int value : values) {
+            data.writeInt(value);
+        }
+    }
+
+    /**
+     * Writes terminals as their column ids and "&" as EPSILON.
+     */
+    private void writeSymbols(DataOutputStream data, String[] symbols) throws IOException {
+        data.writeInt(symbols.length);
+        for (String symbol : symbols) {
+            data.writeInt(symbol.equals("&") ? EPSILON : getColumn(symbol));
+        }
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        byte[] bytes = new byte[readLength(data)];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String[] readStrings(DataInputStream data) throws IOException {
+        String[] strs = new String[readLength(data)];
+        for (int i = 0; i < strs.length; i++) {
+            strs[i] = readString(data);
+        }
+        return strs;
+    }
+
+    private static String[] readSymbols(DataInputStream data, String[] terminals) throws IOException {
+        String[] symbols = new String[readLength(data)];
+        for (int i = 0; i < symbols.length; i++) {
+            int column = check(data.readInt(), EPSILON, terminals.length);
+            symbols[i] = column == EPSILON ? "&" : terminals[column];
+        }
+        return symbols;
+    }
+
+    /**
+     * Reads the length of an array or string, never above the bytes left.
+     */
+    private static int readLength(DataInputStream data) throws IOException {
+        return check(data.readInt(), 0, data.available() + 1);
+    }
+
+    /**
+     * Checks a read value against its range.
+     *
+     * @param value read value.
+     * @param from smallest valid value.
+     * @param to first invalid value above from.
+     * @return value.
+     * @throws StreamCorruptedException if value is out of range.
+     */
+    private static int check(int value, int from, int to) throws StreamCorruptedException {
+        if (value < from || value >= to) {
+            throw new StreamCorruptedException("Value " + value + " out of range.");
+        }
+        return value;
+    }
+
+    /**
+     * Returns the lexer which splits char inputs.
+     *
+     * @return lexer, null if inputs are read by code point.
+     */
+    public Lexer getLexer() {
+        return lexer;
+    }
+
+    /**
+     * Attaches a profile which counts the MTable cells parses expand, or
+     * detaches it. Parses already running keep the previous one.
+     *
+     * @param profile profile built for this grammar, null to stop counting.
+     * @throws IllegalArgumentException if profile was built for another
+     * grammar.
+     */
+    public void setProfile(CellProfile profile) throws IllegalArgumentException {
+        if (profile != null) {
+            profile.check(this);
+        }
+        this.profile = profile;
+    }
+
+    /**
+     * Returns the attached cell profile.
+     *
+     * @return profile, null if cells aren't counted.
+     */
+    public CellProfile getProfile() {
+        return profile;
+    }
+
+    public int getNonTerminalCount() {
+        return nonTerminals.length;
+    }
+
+    public int getTerminalCount() {
+        return terminals.length;
+    }
+
+    public int getProductionCount() {
+        return alphas.length;
+    }
+
+    /**
+     * Get the non terminal of a row.
+     *
+     * @param row row id.
+     * @return non terminal identifier.
+     */
+    public String getNonTerminal(int row) {
+        return nonTerminals[row];
+    }
+
+    /**
+     * Get the terminal of a column.
+     *
+     * @param column column id.
+     * @return terminal identifier.
+     */
+    public String getTerminal(int column) {
+        return terminals[column];
+    }
+
+    /**
+     * Get the row id of a non terminal.
+     *
+     * @param A non terminal identifier.
+     * @return row id or MTable.NONE if A isn't a non terminal.
+     */
+    public int getRow(String A) {
+        return rows.getOrDefault(A, MTable.NONE);
+    }
+
+    /**
+     * Get the column id of a terminal.
+     *
+     * @param b terminal identifier.
+     * @return column id or MTable.NONE if b isn't a terminal.
+     */
+    public int getColumn(String b) {
+        return columns.getOrDefault(b, MTable.NONE);
+    }
+
+    /**
+     * Get the row of the head of a production.
+     *
+     * @param id production id.
+     * @return head row id.
+     */
+    public int getProductionHead(int id) {
+        return productionHeads[id];
+    }
+
+    /**
+     * Get the body of a production.
+     *
+     * @param id production id.
+     * @return production alpha.
+     */
+    public String getProductionAlpha(int id) {
+        return alphas[id];
+    }
+
+    /**
+     * Get the parse stack symbols of a production in order, terminals are
+     * columns and non terminals rows plus the columns count.
+     *
+     * @param id production id.
+     * @return stack symbols, empty for epsilon.
+     */
+    public int[] getProductionSymbols(int id) {
+        int[] reversed = reversedAlphas[id];
+        if (reversed.length == 1 && reversed[0] == EPSILON) {
+            return new int[0];
+        }
+
+        int[] symbols = new int[reversed.length];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = reversed[reversed.length - 1 - i];
+        }
+        return symbols;
+    }
+
+    /**
+     * Get the PRIMERO of a non terminal.
+     *
+     * @param row row id.
+     * @return unmodifiable PRIMERO list.
+     */
+    public List<String> getFirst(int row) {
+        return List.of(first[row]);
+    }
+
+    /**
+     * Get the next of a non terminal.
+     *
+     * @param row row id.
+     * @return unmodifiable next list.
+     */
+    public List<String> getNext(int row) {
+        return List.of(next[row]);
+    }
+
+    /**
+     * Get the id of the production linked to a row and a column.
+     *
+     * @param row row id.
+     * @param column column id.
+     * @return production id or MTable.NONE if the cell is empty.
+     */
+    public int getProductionId(int row, int column) {
+        if (row < 0 || row >= nonTerminals.length || column < 0 || column >= cells[row].length) {
+            return MTable.NONE;
+        }
+        int p = cells[row][column];
+        return p != MTable.NONE ? rowStarts[row] + p : MTable.NONE;
+    }
+
+    /**
+     * Get the formated production linked to non terminal A and terminal b.
+     *
+     * @param A non terminal identifier.
+     * @param b terminal identifier.
+     * @return string formated if production is found.
+     */
+    public String getProductionString(String A, String b) {
+        int id = getProductionId(getRow(A), getColumn(b));
+        return id != MTable.NONE ? A + "->" + alphas[id] : null;
+    }
+
+    /**
+     * Recognizes str and collects every step of the parse.
+     *
+     * @param str string to recognize.
+     * @return {stack, input, production} rows if str is recognized, null
+     * otherwise.
+     */
+    public ArrayList<String[]> match(String str) {
+        TraceCollector trace = new TraceCollector();
+        return parse(str, trace) ? trace.getRows() : null;
+    }
+
+    /**
+     * Determines whether the grammar recognizes str, gives the same verdict
+     * than match but runs over code points and the MTable ids, so it doesn't
+     * allocate anything per character.
+     *
+     * @param str string to recognize.
+     * @return true if str is recognized.
+     */
+    public boolean recognize(CharSequence str) {
+        return parse(str, null);
+    }
+
+    /**
+     * Determines whether the grammar recognizes str reusing the stack and
+     * cursor of context, so nothing is allocated unless the stack has to grow.
+     *
+     * @param str string to recognize.
+     * @param context parse context owned by the calling thread.
+     * @return true if str is recognized.
+     */
+    public boolean recognize(CharSequence str, ParseContext context) {
+        return parse(lexer != null ? input(str) : context.chars.reset(str), null, context);
+    }
+
+    /**
+     * Recognizes str reporting its steps to listener, texts of the steps are
+     * only built if the listener level asks for snapshots.
+     *
+     * @param str string to recognize.
+     * @param listener parse listener, may be null.
+     * @return true if str is recognized.
+     */
+    public boolean parse(CharSequence str, ParseListener listener) {
+        return parse(input(str), listener, null);
+    }
+
+    /**
+     * Returns the cursor over str, through the lexer if there is one.
+     *
+     * @param str input to recognize.
+     * @return parse input.
+     */
+    ParseInput input(CharSequence str) {
+        return lexer != null ? new ParseInput.Lexed(lexer, lexerColumns, str) : new ParseInput.Chars(str);
+    }
+
+    /**
+     * Returns the cursor over the chars of a reader, through the lexer if
+     * there is one.
+     *
+     * @param reader input to recognize, it isn't closed.
+     * @param bufferSize chars read from the reader at once.
+     * @return parse input.
+     */
+    ParseInput input(Reader reader, int bufferSize) {
+        return lexer != null
+                ? new ParseInput.LexedStream(lexer.scanner(reader, bufferSize), lexerColumns, this)
+                : new ParseInput.Stream(reader, bufferSize);
+    }
+
+    /**
+     * Determines whether the grammar recognizes a token stream, needed when
+     * terminals are longer than one code point.
+     *
+     * @param tokens terminal column ids, see getColumn.
+     * @param length count of tokens to read.
+     * @return true if the tokens are recognized.
+     */
+    public boolean recognize(int[] tokens, int length) {
+        return parse(tokens, length, null);
+    }
+
+    /**
+     * Recognizes a token stream reporting its steps to listener.
+     *
+     * @param tokens terminal column ids, see getColumn.
+     * @param length count of tokens to read.
+     * @param listener parse listener, may be null.
+     * @return true if the tokens are recognized.
+     */
+    public boolean parse(int[] tokens, int length, ParseListener listener) {
+        return parse(new ParseInput.Tokens(tokens, length, this), listener, null);
+    }
+
+    /**
+     * Recognizes str building its parse tree into tree, whose arrays and
+     * parse stack are reused.
+     *
+     * @param str string to recognize.
+     * @param tree tree to fill, its previous nodes are dropped.
+     * @return true if str is recognized.
+     */
+    public boolean derive(CharSequence str, ParseTree tree) {
+        ParseContext context = tree.context;
+        return parse(lexer != null ? input(str) : context.chars.reset(str), null, context, tree);
+    }
+
+    /**
+     * Recognizes a token stream building its parse tree into tree, spans
+     * count tokens.
+     *
+     * @param tokens terminal column ids, see getColumn.
+     * @param length count of tokens to read.
+     * @param tree tree to fill, its previous nodes are dropped.
+     * @return true if the tokens are recognized.
+     */
+    public boolean derive(int[] tokens, int length, ParseTree tree) {
+        return parse(new ParseInput.Tokens(tokens, length, this), null, tree.context, tree);
+    }
+
+    /**
+     * Runs the MTable loop pulling code points from input.
+     *
+     * @param input input to recognize, its offset tells where the parse
+     * finished.
+     * @param listener parse listener, may be null.
+     * @param context context whose stack is reused, may be null.
+     * @return true if the input is recognized.
+     */
+    boolean parse(ParseInput input, ParseListener listener, ParseContext context) {
+        return parse(input, listener, context, null);
+    }
+
+    /**
+     * Runs the MTable loop pulling code points from input.
+     *
+     * @param input input to recognize, its offset tells where the parse
+     * finished.
+     * @param listener parse listener, may be null.
+     * @param context context whose stack is reused, may be null.
+     * @param tree tree to build, may be null.
+     * @return true if the input is recognized.
+     */
+    boolean parse(ParseInput input, ParseListener listener, ParseContext context, ParseTree tree) {
+        ParseEvent event = ParseEvent.start();
+        CellProfile profile = this.profile;
+        long[] heat = profile != null ? profile.sample() : null;
+        if (start == MTable.NONE) {
+            if (tree != null) {
+                tree.reset(this, MTable.NONE);
+            }
+            return end(listener, event, tree, input, 0, false);
+        }
+
+        TraceLevel level = listener != null ? listener.getLevel() : TraceLevel.None;
+        boolean productions = level != TraceLevel.None;
+
+        int[] stack = context != null ? context.stack : new int[32];
+        int top = 0;
+        stack[top++] = end;
+        stack[top++] = start;
+
+        input.start();
+        int a = inputSymbol(input);
+        if (tree != null) {
+            tree.reset(this, start);
+        }
+        Snapshot snapshot = level == TraceLevel.Snapshots ? new Snapshot(input) : null;
+
+        long steps = 0;
+        while (true) {
+            steps++;
+            if (snapshot != null) {
+                snapshot.stack = stack;
+                snapshot.top = top;
+                listener.step(snapshot);
+            }
+
+            if (a != EPSILON) {
+                int X = stack[--top];
+
+                if (X == end) {
+                    return end(listener, event, tree, input, steps, X == a);
+                } else if (X == a) {
+                    if (tree != null) {
+                        tree.match(tree.stack[top], input.offset, input.itemEnd());
+                    }
+                    input.advance();
+                    a = inputSymbol(input);
+                } else if (X != EPSILON) {
+                    int id = X < terminals.length ? MTable.NONE : getProductionId(X - terminals.length, a);
+
+                    if (id == MTable.NONE) {
+                        return end(listener, event, tree, input, steps, false);
+                    }
+
+                    if (heat != null) {
+                        heat[(X - terminals.length) * terminals.length + a]++;
+                    }
+
+                    if (productions) {
+                        listener.production(nonTerminals[productionHeads[id]], alphas[id]);
+                    }
+
+                    int[] alpha = reversedAlphas[id];
+                    if (top + alpha.length > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + alpha.length));
+                        if (context != null) {
+                            context.stack = stack;
+                        }
+                    }
+                    System.arraycopy(alpha, 0, stack, top, alpha.length);
+                    if (tree != null) {
+                        tree.expand(tree.stack[top], id, input.offset, alpha, top);
+                    }
+                    top += alpha.length;
+                }
+            } else {
+                input.advance();
+                a = inputSymbol(input);
+            }
+        }
+    }
+
+    private static boolean end(ParseListener listener, ParseEvent event, ParseTree tree, ParseInput input, long steps,
+            boolean accepted) {
+        if (listener != null) {
+            listener.end(accepted);
+        }
+        if (tree != null) {
+            tree.finish(accepted);
+        }
+        if (event != null) {
+            event.finish(input, steps, accepted);
+        }
+        return accepted;
+    }
+
+    /**
+     * Translates the current item of input into a parse stack symbol.
+     *
+     * @param input parse input.
+     * @return stack symbol, MTable.NONE if the item isn't a grammar symbol.
+     */
+    private int inputSymbol(ParseInput input) {
+        if (input instanceof ParseInput.TokenInput) {
+            int token = input.codePoint;
+            return token < 0 ? end : token < terminals.length ? token : MTable.NONE;
+        }
+        return inputSymbol(input.codePoint);
+    }
+
+    /**
+     * Get the parse stack symbols of a production, reversed.
+     *
+     * @param id production id.
+     * @return shared array, it must not be modified.
+     */
+    int[] getReversedAlpha(int id) {
+        return reversedAlphas[id];
+    }
+
+    /**
+     * Returns the parse stack symbol of the start non terminal.
+     *
+     * @return start symbol, MTable.NONE if there are no non terminals.
+     */
+    int getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the parse stack symbol of "$".
+     *
+     * @return end symbol.
+     */
+    int getEnd() {
+        return end;
+    }
+
+    /**
+     * Translates an input code point into a parse stack symbol.
+     *
+     * @param codePoint input code point, -1 at the end of the input.
+     * @return stack symbol, MTable.NONE if codePoint isn't a grammar symbol.
+     */
+    int inputSymbol(int codePoint) {
+        if (codePoint < 0) {
+            return end;
+        } else if (codePoint == '&') {
+            return EPSILON;
+        }
+
+        int column = columnIndex.get(codePoint);
+        if (column != MTable.NONE) {
+            return column;
+        }
+
+        int row = rowIndex.get(codePoint);
+        return row != MTable.NONE ? terminals.length + row : MTable.NONE;
+    }
+
+    /**
+     * Returns the grammar symbol of a parse stack symbol.
+     *
+     * @param symbol parse stack symbol.
+     * @return symbol identifier.
+     */
+    String symbolName(int symbol) {
+        if (symbol == EPSILON) {
+            return "&";
+        }
+        return symbol < terminals.length ? terminals[symbol] : nonTerminals[symbol - terminals.length];
+    }
+
+    /**
+     * Parse step over the live parse stack, its texts are built on request.
+     */
+    private class Snapshot implements ParseStep {
+
+        private final ParseInput input;
+        private int[] stack;
+        private int top;
+
+        Snapshot(ParseInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public String getStack() {
+            StringBuilder builder = new StringBuilder("[");
+            for (int j = 0; j < top; j++) {
+                if (j > 0) {
+                    builder.append(", ");
+                }
+                builder.append(symbolName(stack[j]));
+            }
+            return builder.append(']').toString();
+        }
+
+        @Override
+        public String getInput() {
+            return input.remaining();
+        }
+    }
+}
@@ -15,17 +15,23 @@
  */
 package com.descentparser.grammar;
 
+import com.descentparser.lexer.Lexer;
+import com.descentparser.tools.BitTools;
+import com.descentparser.tools.GraphTools;
 import com.descentparser.tools.NullableStatus;
-import com.descentparser.tools.StringTools;
+import com.descentparser.tools.SymbolAllocator;
 import com.descentparser.tools.symbolTools;
+import com.descentparser.trace.ParseListener;
 import com.descentparser.vices.Factoring;
 import com.descentparser.vices.Recursion;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.Queue;
-import java.util.Stack;
 
 /**
  * Represents a grammar structure with its productions.
@@ -34,13 +40,49 @@ import java.util.Stack;
  */
 public class Grammar {
 
+    /**
+     * Version of the analysis run by processGrammar, it has to be bumped
+     * whenever the compiled grammar of some source can change, like a new
+     * vice removal, factoring order or table construction. GrammarCache keys
+     * include it.
+     */
+    public static final int ANALYSIS_VERSION = 1;
+
     public final MTable mTable;
     public final HashMap<String, Head> heads;
     public final ArrayList<String> nonTerminals;
     public final ArrayList<String> terminalSymbols;
+    final SymbolTable symbolTable;
+    final SymbolAllocator allocator;
+    final boolean spaced;
+    private int misshapen = -1;
+    private Lexer lexer;
+    CompiledGrammar compiled;
+    long[] nullableSet;
+    HashMap<String, Integer> nonTerminalIds;
+    int[] rowOfSymbol;
+    long[][] firstSets;
+    long[][] nextSets;
+    int[][][] bodies;
+    int[] columnOfSymbol;
+    int[] terminalUses;
+    int endColumn;
+    int setWords;
+    int[] rowConflicts;
+    final LinkedHashMap<String, ArrayList<int[]>> sources;
+    final HashMap<String, ArrayList<String>> derived;
+    private GrammarEditor editor;
+    private final long[] phaseTimes = new long[Phase.values().length];
+    int factoringHeads;
+    int recursionHeads;
+    int conflicts;
+    PhaseEvent phaseEvent;
 
     /**
-     * Grammar builder.
+     * Grammar builder, productions are written like "A->alpha". Grammars
+     * whose heads are one code point and whose bodies have no whitespace use
+     * the compact notation, the rest the spaced notation of SymbolTable, like
+     * "Expr -> Term '+' Expr", for every production.
      *
      * @param productions
      */
@@ -49,185 +91,540 @@ public class Grammar {
         nonTerminals = new ArrayList();
         terminalSymbols = new ArrayList();
         mTable = new MTable();
+        symbolTable = new SymbolTable();
+        allocator = new SymbolAllocator();
+        sources = new LinkedHashMap();
+        derived = new HashMap();
+        spaced = SymbolTable.isSpaced(productions);
+
+        for (String production : productions) {
+            misshapen++;
+            int arrow = production.indexOf("->");
+            String symbol = arrow >= 0 ? production.substring(0, arrow).trim() : production;
+
+            if (!symbol.isEmpty() && !SymbolTable.isSpaced(symbol) && !symbolTools.isTerminal(symbol)) {
+                String alpha = arrow >= 0 ? production.substring(arrow + 2).trim() : "";
+                int[] symbols = null;
+                if (!alpha.isEmpty()) {
+                    try {
+                        symbols = symbolTable.parse(alpha, spaced);
+                    } catch (IllegalArgumentException ex) {
+                        symbols = null;
+                    }
+                }
 
-        for (String alpha : productions) {
-            String[] prodParts = alpha.split("->");
-
-            if (prodParts[0].length() == 1 && !symbolTools.isTerminal(prodParts[0])) {
-                if (prodParts.length > 1) {
-                    Head head = heads.get(prodParts[0]);
+                if (symbols != null) {
+                    Head head = heads.get(symbol);
 
                     if (head == null) {
-                        head = new Head(prodParts[0]);
-                        heads.put(prodParts[0], head);
-                        nonTerminals.add(prodParts[0]);
+                        head = new Head(symbol, symbolTable);
+                        heads.put(symbol, head);
+                        nonTerminals.add(symbol);
+                        allocator.use(symbol);
                     }
 
-                    head.addProduction(prodParts[1]);
+                    head.addProduction(symbols);
 
                 } else {
                     // Removes all elements from head list if a production is misshapen.
                     heads.clear();
+                    nonTerminals.clear();
                     break;
                 }
             } else {
                 // Removes all elements from head list if a production head simbol is lowercase.
                 heads.clear();
+                nonTerminals.clear();
                 break;
             }
         }
+        if (!nonTerminals.isEmpty() || productions.isEmpty()) {
+            misshapen = -1;
+        }
+
+        // Non terminals used in bodies only are reserved too, so new heads never take their symbol.
+        for (int id = 0; id < symbolTable.size(); id++) {
+            if (!symbolTable.isTerminal(id)) {
+                allocator.use(symbolTable.getName(id));
+            }
+        }
+
+        nonTerminals.forEach(A -> {
+            Head head = heads.get(A);
+            if (head != null) {
+                ArrayList<int[]> symbols = new ArrayList();
+                head.getProductions().forEach(p -> symbols.add(p.symbols));
+                sources.put(A, symbols);
+            }
+        });
     }
 
     /**
+     * Recognizes str and collects every step of the parse.
      *
-     * @param str
-     * @return
+     * @param str string to recognize.
+     * @return {stack, input, production} rows if str is recognized, null
+     * otherwise.
      */
     public ArrayList<String[]> match(String str) {
+        return compiled != null ? compiled.match(str) : null;
+    }
 
-        Queue<String> strQueue = new LinkedList(Arrays.asList((str + "$").split("")));
+    /**
+     * Determines whether the grammar recognizes str without building any
+     * trace.
+     *
+     * @param str string to recognize.
+     * @return true if str is recognized.
+     * @see CompiledGrammar#recognize(java.lang.CharSequence)
+     */
+    public boolean recognize(CharSequence str) {
+        return compiled != null && compiled.recognize(str);
+    }
 
-        Stack<String> stack = new Stack();
-        stack.push("$");
-        stack.push(this.nonTerminals.get(0));
+    /**
+     * Recognizes str reporting its steps to listener.
+     *
+     * @param str string to recognize.
+     * @param listener parse listener, may be null.
+     * @return true if str is recognized.
+     * @see CompiledGrammar#parse(java.lang.CharSequence,
+     * com.descentparser.trace.ParseListener)
+     */
+    public boolean parse(CharSequence str, ParseListener listener) {
+        return compiled != null && compiled.parse(str, listener);
+    }
 
-        ArrayList<String[]> follow = new ArrayList<>();
+    /**
+     * Recognizes str building its parse tree.
+     *
+     * @param str string to recognize.
+     * @param tree tree to fill, it can be reused by every parse.
+     * @return true if str is recognized.
+     * @see CompiledGrammar#derive(java.lang.CharSequence,
+     * com.descentparser.grammar.ParseTree)
+     */
+    public boolean derive(CharSequence str, ParseTree tree) {
+        return compiled != null && compiled.derive(str, tree);
+    }
 
-        while (true) {
-            follow.add(new String[]{stack.toString(), strQueue.toString(), ""});
+    /**
+     * Returns the source of free non terminal symbols of the grammar.
+     *
+     * @return grammar symbol allocator.
+     */
+    public SymbolAllocator getSymbolAllocator() {
+        return allocator;
+    }
 
-            String a = strQueue.peek();
-            if (!a.equals("&")) {
-                String X = stack.pop();
+    /**
+     * Attaches a lexer which splits inputs into terminals before parsing, the
+     * names of its rules must be terminals of the grammar.
+     *
+     * @param lexer lexer, null to read inputs by code point again.
+     */
+    public void setLexer(Lexer lexer) {
+        this.lexer = lexer;
+        if (compiled != null) {
+            compiled = compiled.withLexer(lexer);
+        }
+    }
 
-                if (X.equals("$")) {
-                    return X.equals(a) ? follow : null;
-                } else if (X.equals(a)) {
-                    strQueue.poll();
-                    a = strQueue.peek();
-                } else if (!X.equals("&")) {
-                    Production prod = this.mTable.getProduction(X, a);
+    /**
+     * Returns the attached lexer.
+     *
+     * @return lexer, null if inputs are read by code point.
+     */
+    public Lexer getLexer() {
+        return lexer;
+    }
 
-                    if (prod == null) {
-                        return null;
-                    }
+    /**
+     * Returns the table where every symbol of the grammar is interned.
+     *
+     * @return grammar symbol table.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
 
-                    follow.get(follow.size() - 1)[2] = X + "->" + prod.alpha;;
-                    stack.addAll(Arrays.asList(StringTools.reverse(prod.alpha).split("")));
-                }
-            } else {
-                strQueue.poll();
-            }
-        }
+    /**
+     * Returns the frozen snapshot made by the last processGrammar call.
+     *
+     * @return compiled grammar, null if the grammar wasn't processed.
+     */
+    public CompiledGrammar getCompiled() {
+        return compiled;
     }
 
     /**
      * Execute all processes needed to let the grammar ready to recongnize
      * strings.
      *
-     * @throws NullPointerException
+     * @throws NullPointerException if a production uses a simbol without
+     * productions.
+     * @throws IllegalArgumentException if a production is its head alone,
+     * like "A->A".
      */
-    public void processGrammar() throws NullPointerException {
+    public void processGrammar() throws NullPointerException, IllegalArgumentException {
+        long time = System.nanoTime();
+        phaseEvent = PhaseEvent.start();
         ArrayList<Head> vicesFreeHeads = new ArrayList();
+        factoringHeads = 0;
+        recursionHeads = 0;
+        derived.clear();
 
         heads.keySet().forEach((key) -> {
-            ArrayList<Head> temp;
-            Queue<Head> queue = new LinkedList();
-            queue.add(heads.get(key));
-            
-            Head head;
-            while (!queue.isEmpty()) {
-                head = queue.poll();
-                if (Factoring.hasLeftFactoring(head)) {
-                    temp = Factoring.removeLeftSideFactoring(head, nonTerminals);
-                    queue.addAll(temp);
-                } else if (Recursion.hasLeftRecursion(head)) {
-                    temp = Recursion.removeLeftSideRecursion(head, nonTerminals);
-                    queue.addAll(temp);
-                } else {
-                    vicesFreeHeads.add(head);
+            ArrayList<Head> free = removeVices(heads.get(key), nonTerminals);
+            ArrayList<String> names = new ArrayList();
+            names.add(key);
+            free.forEach(head -> {
+                if (!head.getSymbol().equals(key)) {
+                    names.add(head.getSymbol());
                 }
-            }
+            });
+            vicesFreeHeads.addAll(free);
+            derived.put(key, names);
         });
 
         heads.clear();
         vicesFreeHeads.forEach((head) -> {
             heads.put(head.getSymbol(), head);
         });
+        build(time);
+    }
+
+    /**
+     * Removes left factoring and left recursion of a head until every head
+     * it gives is free of them.
+     *
+     * @param source head to clean.
+     * @param order non terminals where the new heads are inserted next to
+     * the head they come from.
+     * @return vice free heads, one of them keeps the symbol of source.
+     */
+    ArrayList<Head> removeVices(Head source, ArrayList<String> order) {
+        ArrayList<Head> free = new ArrayList();
+        ArrayList<Head> temp;
+        Queue<Head> queue = new LinkedList();
+        queue.add(source);
+
+        Head head;
+        while (!queue.isEmpty()) {
+            head = queue.poll();
+            int count = order.size();
+            if (Factoring.hasLeftFactoring(head)) {
+                temp = Factoring.removeLeftSideFactoring(head, order, allocator);
+                factoringHeads += order.size() - count;
+                queue.addAll(temp);
+            } else if (Recursion.hasLeftRecursion(head)) {
+                temp = Recursion.removeLeftSideRecursion(head, order, allocator);
+                recursionHeads += order.size() - count;
+                queue.addAll(temp);
+            } else {
+                free.add(head);
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Runs every phase after the vices over the vice free heads in
+     * nonTerminals.
+     *
+     * @param time when the vices phase began.
+     * @throws NullPointerException if a production uses a simbol without
+     * productions.
+     */
+    void build(long time) throws NullPointerException {
+        conflicts = 0;
+        editor = null;
+        terminalSymbols.clear();
 
+        HashSet<Integer> found = new HashSet();
         nonTerminals.forEach(A -> {
             Head head = heads.get(A);
             head.getProductions().forEach(p -> {
-                for (int i = 0; i < p.alpha.length(); i++) {
-                    if (symbolTools.isTerminal(p.alpha.charAt(i)) && p.alpha.charAt(i) != '&'
-                            && !terminalSymbols.contains(p.alpha.substring(i, i + 1))) {
-                        terminalSymbols.add(p.alpha.substring(i, i + 1));
+                for (int symbol : p.symbols) {
+                    if (symbolTable.isTerminal(symbol) && found.add(symbol)) {
+                        terminalSymbols.add(symbolTable.getName(symbol));
                     }
                 }
             });
         });
         terminalSymbols.add("$");
+        endColumn = terminalSymbols.size() - 1;
+        time = endPhase(Phase.Vices, time);
 
+        generateNullable();
+        time = endPhase(Phase.Nullable, time);
+        encodeProductions();
+        time = endPhase(Phase.Encoding, time);
         generatePRIMERO();
+        time = endPhase(Phase.First, time);
         generateNext();
+        time = endPhase(Phase.Next, time);
+        mTable.init(nonTerminals, terminalSymbols);
         generateMTable();
+        time = endPhase(Phase.MTable, time);
+        compiled = CompiledGrammar.compile(this);
+        endPhase(Phase.Compile, time);
     }
 
     /**
-     * Generate PRIMERO.
+     * Adds a production to the processed grammar and brings its tables up
+     * to date. Only the head of the production goes through the vices again
+     * and only the non terminals whose nullability, PRIMERO, next or MTable
+     * row can change are computed again, the rest is copied. Edits which
+     * remove the start symbol run every phase after the vices again.
+     *
+     * A production can only use non terminals which already have
+     * productions, besides its own head. MTable conflicts are counted by
+     * getConflictCount, nothing is written to the output.
+     *
+     * @param production production written like in the constructor,
+     * "A->alpha", in the notation of the grammar.
+     * @return false if the grammar already has the production.
+     * @throws NullPointerException if the grammar isn't processed or alpha
+     * uses a simbol without productions.
+     * @throws IllegalArgumentException if production is misshapen, is its
+     * head alone, like "A->A", or is spaced in a compact grammar.
      */
-    private void generatePRIMERO() {
-        /**
-         * Loop over all heads and get the first symbol of every productions.
-         */
-        heads.values().forEach((Head h) -> {
-            ArrayList<String> first = h.getFirst();
-
-            h.getProductions().forEach((Production p) -> {
-                int i = 0;
-                String symbol;
-                while (i < p.length()) {
-                    symbol = p.alpha.substring(i, i + 1);
-                    if (symbol.compareTo("&") != 0) {
-                        first.add(symbol);
-                        if (!nullable(symbol)) {
-                            break;
-                        }
+    public boolean addProduction(String production) throws NullPointerException, IllegalArgumentException {
+        return editor().edit(production, true);
+    }
+
+    /**
+     * Removes a production from the processed grammar and brings its tables
+     * up to date like addProduction. Removing the last production of a head
+     * removes the head.
+     *
+     * @param production production written like in the constructor,
+     * "A->alpha", in the notation of the grammar.
+     * @return false if the grammar doesn't have the production.
+     * @throws NullPointerException if the grammar isn't processed or the
+     * head would be removed while other heads use it.
+     * @throws IllegalArgumentException if production is misshapen or is
+     * spaced in a compact grammar.
+     */
+    public boolean removeProduction(String production) throws NullPointerException, IllegalArgumentException {
+        return editor().edit(production, false);
+    }
+
+    /**
+     * Returns the editor of the processed grammar, it is made on the first
+     * edit after processGrammar.
+     *
+     * @return grammar editor.
+     * @throws NullPointerException if the grammar isn't processed.
+     */
+    private GrammarEditor editor() throws NullPointerException {
+        if (compiled == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        if (editor == null) {
+            editor = new GrammarEditor(this);
+        }
+        return editor;
+    }
+
+    long endPhase(Phase phase, long start) {
+        long end = System.nanoTime();
+        phaseTimes[phase.ordinal()] = end - start;
+
+        if (phaseEvent != null) {
+            if (phaseEvent.finish(phase)) {
+                int productions = 0;
+                for (Head head : heads.values()) {
+                    productions += head.getProductions().size();
+                }
+                phaseEvent.nonTerminals = nonTerminals.size();
+                phaseEvent.terminals = terminalSymbols.size();
+                phaseEvent.productions = productions;
+                phaseEvent.factoringHeads = factoringHeads;
+                phaseEvent.recursionHeads = recursionHeads;
+                phaseEvent.conflicts = conflicts;
+                phaseEvent.commit();
+            }
+            phaseEvent = phase != Phase.Compile ? PhaseEvent.start() : null;
+        }
+        return end;
+    }
+
+    /**
+     * Returns how long a step of the last processGrammar call took.
+     *
+     * @param phase processGrammar step.
+     * @return nanoseconds, 0 if the grammar wasn't processed.
+     */
+    public long getPhaseTime(Phase phase) {
+        return phaseTimes[phase.ordinal()];
+    }
+
+    /**
+     * Returns the production which made the builder drop every head.
+     *
+     * @return index in the productions given to the builder, -1 if every
+     * production was read.
+     */
+    public int getMisshapenIndex() {
+        return misshapen;
+    }
+
+    /**
+     * Returns how many MTable cells the last processGrammar call found
+     * claimed by more than one production, the first one is kept.
+     *
+     * @return conflicting cells, 0 for LL(1) grammars.
+     */
+    public int getConflictCount() {
+        return conflicts;
+    }
+
+    /**
+     * Translates the symbols of every production into indexes once,
+     * terminals are their index in terminalSymbols and non terminals the
+     * complement (~) of their index in nonTerminals.
+     *
+     * @throws NullPointerException if a production uses a simbol without
+     * productions.
+     */
+    private void encodeProductions() throws NullPointerException {
+        columnOfSymbol = new int[symbolTable.size()];
+        Arrays.fill(columnOfSymbol, MTable.NONE);
+        for (int b = 0; b < terminalSymbols.size() - 1; b++) {
+            columnOfSymbol[symbolTable.terminal(terminalSymbols.get(b))] = b;
+        }
+        bodies = new int[nonTerminals.size()][][];
+        terminalUses = new int[terminalSymbols.size()];
+
+        for (int A = 0; A < bodies.length; A++) {
+            encodeRow(A);
+            for (int[] body : bodies[A]) {
+                for (int symbol : body) {
+                    if (symbol >= 0) {
+                        terminalUses[symbol]++;
                     }
-                    i++;
                 }
-            });
-        });
+            }
+        }
+    }
 
-        heads.values().forEach(head -> {
-            ArrayList<String> first = head.getFirst();
-            boolean visited[] = new boolean[terminalSymbols.size()];
-            int i = 0;
-            while (i < first.size()) {
-                String item = first.get(i);
-                if (!symbolTools.isTerminal(item)) {
-                    ArrayList<String> firstOfItem = heads.get(item).getFirst();
-                    firstOfItem.forEach(X -> {
-                        if (first.contains(X) == false && X.compareTo("&") != 0) {
-                            if (symbolTools.isSymbolOf(X, this)) {
-                                if (!visited[nonTerminals.indexOf(X)]) {
-                                    visited[nonTerminals.indexOf(X)] = true;
-                                    first.add(X);
-                                }
-                            } else {
-                                first.add(X);
-                            }
-                        }
-                    });
-                    first.remove(i);
+    /**
+     * Translates the productions of one non terminal.
+     *
+     * @param A non terminal index.
+     * @throws NullPointerException if a production uses a simbol without
+     * productions.
+     */
+    void encodeRow(int A) throws NullPointerException {
+        ArrayList<Production> productions = heads.get(nonTerminals.get(A)).getProductions();
+        bodies[A] = new int[productions.size()][];
+        for (int p = 0; p < bodies[A].length; p++) {
+            int[] symbols = productions.get(p).symbols;
+            int[] body = new int[symbols.length];
+            for (int i = 0; i < symbols.length; i++) {
+                int symbol = symbols[i];
+                if (symbolTable.isTerminal(symbol)) {
+                    body[i] = columnOfSymbol[symbol];
+                } else if (rowOf(symbol) != MTable.NONE) {
+                    body[i] = ~rowOf(symbol);
                 } else {
-                    i++;
+                    throw new NullPointerException("Simbol " + symbolTable.getName(symbol) + " not found.");
                 }
             }
-            if (nullable(head)) {
-                first.add("&");
+            bodies[A][p] = body;
+        }
+    }
+
+    /**
+     * Generate PRIMERO as bit sets indexed by terminal id. A non terminal B
+     * that can start a production of A makes PRIMERO(A) depend on
+     * PRIMERO(B), dependencies are propagated with a worklist until nothing
+     * changes. Head PRIMERO lists are filled from the bit sets at the end.
+     */
+    private void generatePRIMERO() {
+        int n = nonTerminals.size();
+        setWords = BitTools.words(terminalSymbols.size());
+        firstSets = new long[n][setWords];
+
+        ArrayList<ArrayList<Integer>> dependents = new ArrayList(n);
+        for (int A = 0; A < n; A++) {
+            dependents.add(new ArrayList());
+        }
+
+        for (int A = 0; A < n; A++) {
+            for (int[] body : bodies[A]) {
+                for (int symbol : body) {
+                    if (symbol >= 0) {
+                        BitTools.set(firstSets[A], symbol);
+                        break;
+                    }
+
+                    dependents.get(~symbol).add(A);
+                    if (!nullable(~symbol)) {
+                        break;
+                    }
+                }
             }
-        });
+        }
+
+        ArrayDeque<Integer> worklist = new ArrayDeque();
+        boolean[] queued = new boolean[n];
+        for (int A = 0; A < n; A++) {
+            worklist.add(A);
+            queued[A] = true;
+        }
+        while (!worklist.isEmpty()) {
+            int B = worklist.poll();
+            queued[B] = false;
+            for (int A : dependents.get(B)) {
+                if (BitTools.or(firstSets[A], firstSets[B]) && !queued[A]) {
+                    worklist.add(A);
+                    queued[A] = true;
+                }
+            }
+        }
+
+        for (int A = 0; A < n; A++) {
+            fillFirst(A);
+        }
+    }
+
+    /**
+     * Fills the PRIMERO list of a head from its bit set.
+     *
+     * @param A non terminal index.
+     */
+    void fillFirst(int A) {
+        ArrayList<String> first = heads.get(nonTerminals.get(A)).getFirst();
+        first.clear();
+        fill(first, firstSets[A]);
+        if (nullable(A)) {
+            first.add("&");
+        }
+    }
+
+    /**
+     * Fills the next list of a head from its bit set.
+     *
+     * @param A non terminal index.
+     */
+    void fillNext(int A) {
+        ArrayList<String> next = heads.get(nonTerminals.get(A)).getNext();
+        next.clear();
+        fill(next, nextSets[A]);
+    }
+
+    /**
+     * Adds the terminals of a bit set to a list in column order.
+     */
+    private void fill(ArrayList<String> symbols, long[] set) {
+        for (int word = 0; word < set.length; word++) {
+            for (long bits = set[word]; bits != 0; bits &= bits - 1) {
+                symbols.add(terminalSymbols.get(word * 64 + Long.numberOfTrailingZeros(bits)));
+            }
+        }
     }
 
     /**
@@ -237,13 +634,20 @@ public class Grammar {
      * @return
      */
     public ArrayList<String> PRIMOfWord(String w) {
-        String firstSymbol = null;
-        int i = 0;
-        while (i < w.length() && (firstSymbol = w.substring(i, i + 1)).compareTo("&") == 0) {
-            i++;
-        }
+        return PRIMOfSymbols(symbolTable.parse(w, spaced || SymbolTable.isSpaced(w)));
+    }
+
+    /**
+     * Find the PRIMERO of the first symbol of a production.
+     *
+     * @param symbols production symbol ids.
+     * @return PRIMERO of the head of the first symbol, the first symbol if it
+     * is terminal or "&" if there are no symbols.
+     */
+    private ArrayList<String> PRIMOfSymbols(int[] symbols) {
+        String firstSymbol = symbols.length > 0 ? symbolTable.getName(symbols[0]) : "&";
 
-        if (this.heads.containsKey(firstSymbol)) {
+        if (symbols.length > 0 && !symbolTable.isTerminal(symbols[0]) && this.heads.containsKey(firstSymbol)) {
             return heads.get(firstSymbol).getFirst();
         }
 
@@ -254,17 +658,19 @@ public class Grammar {
      * Generate the MTable.
      */
     private void generateMTable() {
+        rowConflicts = new int[nonTerminals.size()];
         /**
          * Loop over all non terminal symbols.
          */
         nonTerminals.forEach((String A) -> {
             Head head = heads.get(A);
+            int row = nonTerminalIds.get(A);
             /**
              * Loop over first symbols of head.
              */
             head.getFirst().forEach(firstSymbol -> {
                 head.getProductions().forEach(production -> {
-                    ArrayList<String> first = PRIMOfWord(production.alpha);
+                    ArrayList<String> first = PRIMOfSymbols(production.symbols);
                     if (first.contains(firstSymbol)) {
                         /**
                          * If A generates & in 0 or more steps every symbol in
@@ -276,14 +682,16 @@ public class Grammar {
                                 if (mTable.getProduction(A, b) == null) {
                                     mTable.setProduction(A, b, production);
                                 } else {
-                                    System.out.println("Tabla M ambigua.");
+                                    conflicts++;
+                                    rowConflicts[row]++;
                                 }
                             });
                         } else {
                             if (mTable.getProduction(A, firstSymbol) == null) {
                                 mTable.setProduction(A, firstSymbol, production);
                             } else {
-                                System.out.println("Tabla M ambigua.");
+                                conflicts++;
+                                rowConflicts[row]++;
                             }
                         }
                     }
@@ -295,85 +703,189 @@ public class Grammar {
     /**
      * Looks for and set the next of every non terminal of the grammar.
      *
-     * @throws NullPointerException if isn't able to found a terminal symbol in
-     * heads list.
+     * One pass over the productions, right to left, gives the terminals that
+     * directly follow every non terminal and the constraints next(A) in
+     * next(B) for every B that can end a production of A. Constraints form a
+     * graph whose strongly connected components share the same next, so they
+     * are collapsed and the bit sets are propagated in topological order.
+     * Head next lists are filled from the bit sets at the end.
+     *
+     * @throws NullPointerException if the grammar wasn't encoded.
      */
     public void generateNext() throws NullPointerException {
-        boolean first = true;
-        for (String headSymbol : nonTerminals) {
-            Head head = heads.get(headSymbol);
-            if (first) {
-                head.getNext().add("$");
-                first = false;
-            }
+        int n = nonTerminals.size();
+        int words = setWords;
+        nextSets = new long[n][words];
 
-            head.getProductions().forEach((production) -> {
-                nonTerminals.forEach(symbol -> {
-                    if (production.alpha.contains(symbol)) {
-                        String[] prodSplit = production.alpha.split(symbol, 0);
-                        /**
-                         * If last part of vector is nullable means next of
-                         * simbol contains next of head symbol.
-                         */
-                        ArrayList<String> nxtOfSimbol = heads.get(symbol).getNext();
+        ArrayList<ArrayList<Integer>> constraints = new ArrayList(n);
+        for (int A = 0; A < n; A++) {
+            constraints.add(new ArrayList());
+        }
+        if (n > 0) {
+            BitTools.set(nextSets[0], terminalSymbols.indexOf("$"));
+        }
 
-                        if (symbol.charAt(0) == production.alpha.charAt(production.alpha.length() - 1)
-                                || nullable(prodSplit[prodSplit.length - 1])) {
-                            if (!nxtOfSimbol.contains(head.getSymbol()) && symbol.compareTo(head.getSymbol()) != 0) {
-                                nxtOfSimbol.add(head.getSymbol());
-                            }
+        long[] suffixFirst = new long[words];
+        for (int A = 0; A < n; A++) {
+            for (int[] body : bodies[A]) {
+                Arrays.fill(suffixFirst, 0);
+                boolean suffixNullable = true;
+
+                for (int i = body.length - 1; i >= 0; i--) {
+                    int symbol = body[i];
+                    if (symbol >= 0) {
+                        Arrays.fill(suffixFirst, 0);
+                        BitTools.set(suffixFirst, symbol);
+                        suffixNullable = false;
+                    } else {
+                        int B = ~symbol;
+                        BitTools.or(nextSets[B], suffixFirst);
+                        if (suffixNullable && B != A) {
+                            constraints.get(A).add(B);
                         }
-
-                        /**
-                         * The first terminal rigth of symbol different to
-                         * epsilon is in next of symbol.
-                         */
-                        for (int i = 1; i < prodSplit.length; i++) {
-                            String betha = prodSplit[i];
-                            ArrayList<String> prinOfBetha = PRIMOfWord(betha);
-                            prinOfBetha.forEach(item -> {
-                                if (item.compareTo("&") != 0 && !nxtOfSimbol.contains(item)) {
-                                    nxtOfSimbol.add(item);
-                                }
-                            });
+                        if (!nullable(B)) {
+                            Arrays.fill(suffixFirst, 0);
+                            suffixNullable = false;
                         }
+                        BitTools.or(suffixFirst, firstSets[B]);
                     }
-                });
-            });
+                }
+            }
         }
 
-        for (String nonTerminal : nonTerminals) {
-            Head head = heads.get(nonTerminal);
-            boolean[] visited = new boolean[heads.size()];
-            ArrayList<String> nxt = head.getNext();
-
-            int i = 0;
-            while (i < nxt.size()) {
-                String item = nxt.get(i);
-                if (symbolTools.isSymbolOf(item, this)) {
-                    ArrayList<String> nxtOfItem = heads.get(item).getNext();
-                    int cont = 0;
-                    for (String X : nxtOfItem) {
-                        if (nxt.contains(X) == false) {
-                            cont++;
-                            if (symbolTools.isSymbolOf(X, this)) {
-                                int indexOf = nonTerminals.indexOf(item);
-                                if (!visited[indexOf]) {
-                                    nxt.add(i + cont, X);
-                                    visited[indexOf] = true;
-                                }
-                            } else {
-                                nxt.add(i + cont, X);
-                            }
-                        }
+        int[][] edges = new int[n][];
+        for (int A = 0; A < n; A++) {
+            edges[A] = constraints.get(A).stream().mapToInt(Integer::intValue).toArray();
+        }
+        int[] component = GraphTools.components(edges);
+
+        int count = 0;
+        for (int c : component) {
+            count = Math.max(count, c + 1);
+        }
+        long[][] componentSets = new long[count][words];
+        for (int A = 0; A < n; A++) {
+            BitTools.or(componentSets[component[A]], nextSets[A]);
+        }
+
+        /**
+         * Components are numbered in reverse topological order, so the
+         * highest numbered ones only receive from already finished ones.
+         */
+        ArrayList<ArrayList<Integer>> members = new ArrayList(count);
+        for (int c = 0; c < count; c++) {
+            members.add(new ArrayList());
+        }
+        for (int A = 0; A < n; A++) {
+            members.get(component[A]).add(A);
+        }
+        for (int c = count - 1; c >= 0; c--) {
+            for (int A : members.get(c)) {
+                for (int B : edges[A]) {
+                    if (component[B] != c) {
+                        BitTools.or(componentSets[component[B]], componentSets[c]);
                     }
+                }
+            }
+        }
 
-                    nxt.remove(i);
-                } else {
-                    i++;
+        for (int A = 0; A < n; A++) {
+            nextSets[A] = componentSets[component[A]];
+            fillNext(A);
+        }
+    }
+
+    /**
+     * Finds every nullable non terminal once with the counter based fixed
+     * point: every production counts its non terminals still not known to be
+     * nullable, a production whose count reaches zero makes its head
+     * nullable, and every new nullable head decrements the productions where
+     * it appears. Productions with a terminal never reach zero.
+     */
+    private void generateNullable() {
+        int n = nonTerminals.size();
+        nullableSet = new long[BitTools.words(n)];
+        nonTerminalIds = new HashMap();
+        rowOfSymbol = new int[symbolTable.size()];
+        Arrays.fill(rowOfSymbol, MTable.NONE);
+        for (int A = 0; A < n; A++) {
+            nonTerminalIds.put(nonTerminals.get(A), A);
+            rowOfSymbol[symbolTable.nonTerminal(nonTerminals.get(A))] = A;
+        }
+
+        ArrayList<Production> productions = new ArrayList();
+        ArrayList<Integer> owners = new ArrayList();
+        ArrayList<Integer> counts = new ArrayList();
+        ArrayList<ArrayList<Integer>> occurrences = new ArrayList(n);
+        for (int A = 0; A < n; A++) {
+            occurrences.add(new ArrayList());
+        }
+
+        for (int A = 0; A < n; A++) {
+            for (Production p : heads.get(nonTerminals.get(A)).getProductions()) {
+                int q = productions.size();
+                int count = 0;
+                for (int i = 0; i < p.symbols.length && count >= 0; i++) {
+                    int B = rowOf(p.symbols[i]);
+                    if (B != MTable.NONE) {
+                        occurrences.get(B).add(q);
+                        count++;
+                    } else {
+                        count = -1;
+                    }
+                }
+                p.nullableStatus = NullableStatus.NotNullable;
+                productions.add(p);
+                owners.add(A);
+                counts.add(count);
+            }
+        }
+
+        int[] pending = counts.stream().mapToInt(Integer::intValue).toArray();
+        ArrayDeque<Integer> worklist = new ArrayDeque();
+        for (int q = 0; q < pending.length; q++) {
+            if (pending[q] == 0) {
+                productions.get(q).nullableStatus = NullableStatus.Nullable;
+                if (!nullable(owners.get(q))) {
+                    BitTools.set(nullableSet, owners.get(q));
+                    worklist.add(owners.get(q));
                 }
             }
         }
+
+        while (!worklist.isEmpty()) {
+            int B = worklist.poll();
+            for (int q : occurrences.get(B)) {
+                if (--pending[q] == 0) {
+                    productions.get(q).nullableStatus = NullableStatus.Nullable;
+                    if (!nullable(owners.get(q))) {
+                        BitTools.set(nullableSet, owners.get(q));
+                        worklist.add(owners.get(q));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Denermines whether the non terminal with index A generates epsilon.
+     *
+     * @param A non terminal index.
+     * @return true if it is nullable.
+     */
+    boolean nullable(int A) {
+        return BitTools.get(nullableSet, A);
+    }
+
+    /**
+     * Get the index in nonTerminals of a symbol.
+     *
+     * @param symbol symbol id.
+     * @return non terminal index or MTable.NONE if symbol is terminal or has
+     * no productions.
+     */
+    int rowOf(int symbol) {
+        return symbol < rowOfSymbol.length ? rowOfSymbol[symbol] : MTable.NONE;
     }
 
     /**
@@ -384,21 +896,21 @@ public class Grammar {
      * @throws NullPointerException if simbol doen't exist in heads.
      */
     public boolean nullable(String alpha) throws NullPointerException {
-        int i = 0;
-        while (i < alpha.length()) {
-            if (!symbolTools.isTerminal(alpha.charAt(i))) {
-                Head head = heads.get(alpha.substring(i, i + 1));
-                if (head != null) {
-                    if (!nullable(head)) {
-                        return false;
-                    }
-                } else {
-                    throw new NullPointerException("Simbol " + alpha.charAt(i) + " not found.");
+        if (nullableSet == null) {
+            generateNullable();
+        }
+
+        for (int symbol : symbolTable.parse(alpha, spaced || SymbolTable.isSpaced(alpha))) {
+            int A = rowOf(symbol);
+            if (A != MTable.NONE) {
+                if (!nullable(A)) {
+                    return false;
                 }
-            } else if (alpha.charAt(i) != '&') {
+            } else if (!symbolTable.isTerminal(symbol)) {
+                throw new NullPointerException("Simbol " + symbolTable.getName(symbol) + " not found.");
+            } else {
                 return false;
             }
-            i++;
         }
         return true;
     }
@@ -411,49 +923,14 @@ public class Grammar {
      * @throws NullPointerException if simbol doen't exist in heads.
      */
     public boolean nullable(Head head) throws NullPointerException {
-        ArrayList<Production> productions = head.getProductions();
-        int i = 0;
-        while (i < productions.size()) {
-            boolean isNullable = true;
-            Production p = productions.get(i);
-            switch (p.nullableStatus) {
-                case NotCalculated:
-                    p.nullableStatus = NullableStatus.Calculating;
-                    int j = 0;
-                    while (j < p.alpha.length() && isNullable) {
-                        if (!symbolTools.isTerminal(p.alpha.charAt(j))) {
-                            Head nextHead = heads.get(p.alpha.substring(j, j + 1));
-                            if (nextHead != null) {
-                                if (!nullable(nextHead)) {
-                                    p.nullableStatus = NullableStatus.NotNullable;
-                                    isNullable = false;
-                                }
-                            } else {
-                                throw new NullPointerException("Simbol " + p.alpha.charAt(j) + " not found.");
-                            }
-                        } else if (p.alpha.charAt(j) != '&') {
-                            p.nullableStatus = NullableStatus.NotNullable;
-                            isNullable = false;
-                        }
-                        j++;
-                    }
-
-                    if (isNullable) {
-                        p.nullableStatus = NullableStatus.Nullable;
-                        return true;
-                    }
-                    break;
-                case Calculating:
-                    break;
-                default:
-                    if (p.nullableStatus == NullableStatus.Nullable) {
-                        return true;
-                    }
-            }
-            i++;
+        if (nullableSet == null) {
+            generateNullable();
         }
 
-        return false;
+        Integer A = nonTerminalIds.get(head.getSymbol());
+        if (A == null) {
+            throw new NullPointerException("Simbol " + head.getSymbol() + " not found.");
+        }
+        return nullable(A);
     }
-
 }
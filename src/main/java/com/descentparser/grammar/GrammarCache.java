@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Directory of compiled grammars named after the SHA-256 of their source
+ * lines and the versions of the analysis and the binary format, so a
+ * grammar already seen is read back instead of processed again.
+ * Files which can't be read are rebuilt, and failing to write one only costs
+ * the next load.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class GrammarCache {
+
+    public static final String EXTENSION = ".llg";
+
+    private final File directory;
+
+    /**
+     * GrammarCache builder, the directory is made on the first store.
+     *
+     * @param directory directory where compiled grammars are kept.
+     */
+    public GrammarCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the cache directory under the user home.
+     *
+     * @return default cache directory.
+     */
+    public static File defaultDirectory() {
+        return new File(System.getProperty("user.home"), ".descentparser" + File.separator + "cache");
+    }
+
+    /**
+     * Returns the key of a grammar source, the format version and the
+     * analysis version of Grammar are part of it.
+     *
+     * @param productions grammar source lines.
+     * @return hexadecimal SHA-256.
+     */
+    public static String key(List<String> productions) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(("v" + CompiledGrammar.FORMAT_VERSION + " a" + Grammar.ANALYSIS_VERSION + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            for (String production : productions) {
+                digest.update(production.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Returns the file where a grammar source is kept.
+     *
+     * @param productions grammar source lines.
+     * @return cache file, it may not exist.
+     */
+    public File getFile(List<String> productions) {
+        return new File(directory, key(productions) + EXTENSION);
+    }
+
+    /**
+     * Determines whether a grammar source has a readable cache file.
+     *
+     * @param productions grammar source lines.
+     * @return true if load won't process the grammar.
+     */
+    public boolean contains(List<String> productions) {
+        return read(getFile(productions)) != null;
+    }
+
+    /**
+     * Returns the compiled grammar of a source, read from the cache or
+     * processed and stored if it isn't there.
+     *
+     * @param productions grammar source lines.
+     * @return compiled grammar.
+     * @throws NullPointerException if a production uses a simbol without
+     * productions.
+     * @throws IllegalArgumentException if a production is its head alone.
+     */
+    public CompiledGrammar load(List<String> productions) throws NullPointerException, IllegalArgumentException {
+        return load(productions, new Grammar(new ArrayList(productions)));
+    }
+
+    /**
+     * Returns the compiled grammar of a source, read from the cache or
+     * processed with grammar and stored if it isn't there. Callers can tell
+     * the grammar was processed because getCompiled isn't null.
+     *
+     * @param productions grammar source lines.
+     * @param grammar grammar built from productions and not processed yet.
+     * @return compiled grammar.
+     * @throws NullPointerException if a production uses a simbol without
+     * productions.
+     * @throws IllegalArgumentException if a production is its head alone.
+     */
+    public CompiledGrammar load(List<String> productions, Grammar grammar) throws NullPointerException, IllegalArgumentException {
+        File file = getFile(productions);
+        CompiledGrammar compiled = read(file);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        grammar.processGrammar();
+        compiled = grammar.getCompiled();
+        store(file, compiled);
+        return compiled;
+    }
+
+    /**
+     * Reads a cache file.
+     *
+     * @param file cache file.
+     * @return compiled grammar, null if the file doesn't exist or is
+     * damaged.
+     */
+    private static CompiledGrammar read(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return CompiledGrammar.read(in);
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a cache file through a temporary file, so readers never see it
+     * half written.
+     *
+     * @param file cache file.
+     * @param compiled compiled grammar.
+     */
+    private void store(File file, CompiledGrammar compiled) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = Files.createTempFile(directory.toPath(), "grammar", ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                compiled.write(out);
+            }
+            Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            // The grammar is processed again on the next load.
+            if (temp != null) {
+                temp.toFile().delete();
+            }
+        }
+    }
+}
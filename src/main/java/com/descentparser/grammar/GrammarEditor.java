@@ -0,0 +1,912 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import com.descentparser.tools.BitTools;
+import com.descentparser.tools.NullableStatus;
+import com.descentparser.tools.symbolTools;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Brings a processed grammar up to date after one of its productions is
+ * added or removed. Only the source head of the production goes through the
+ * vices again, and only the rows whose nullability, PRIMERO, next or MTable
+ * row can change are computed again, the rest is copied.
+ *
+ * The editor keeps which heads use every symbol, it is dropped whenever the
+ * grammar runs every phase again.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+final class GrammarEditor {
+
+    private final Grammar grammar;
+    private final ArrayList<HashMap<Integer, Integer>> users;
+
+    /**
+     * GrammarEditor builder.
+     *
+     * @param grammar processed grammar.
+     */
+    GrammarEditor(Grammar grammar) {
+        this.grammar = grammar;
+        users = new ArrayList();
+        grammar.heads.values().forEach(head -> use(head, 1, false));
+    }
+
+    /**
+     * Adds or removes a production, see Grammar.addProduction.
+     *
+     * @param production production written like "A->alpha".
+     * @param add true to add it, false to remove it.
+     * @return false if the grammar already has it or doesn't, as the case
+     * may be.
+     * @throws NullPointerException if alpha uses a simbol without
+     * productions or a head would be removed while other heads use it.
+     * @throws IllegalArgumentException if production is misshapen.
+     */
+    boolean edit(String production, boolean add) throws NullPointerException, IllegalArgumentException {
+        int arrow = production.indexOf("->");
+        String symbol = arrow >= 0 ? production.substring(0, arrow).trim() : "";
+        String alpha = arrow >= 0 ? production.substring(arrow + 2).trim() : "";
+        if (symbol.isEmpty() || alpha.isEmpty() || SymbolTable.isSpaced(symbol) || symbolTools.isTerminal(symbol)) {
+            throw new IllegalArgumentException("Production " + production + " is misshapen.");
+        }
+        if (!grammar.spaced && SymbolTable.isSpaced(Arrays.asList(production))) {
+            throw new IllegalArgumentException("Production " + production + " isn't written in the compact notation of the grammar.");
+        }
+        int[] symbols = grammar.symbolTable.parse(alpha, grammar.spaced);
+
+        ArrayList<int[]> productions = grammar.sources.get(symbol);
+        int index = MTable.NONE;
+        for (int i = 0; productions != null && i < productions.size() && index == MTable.NONE; i++) {
+            if (Arrays.equals(productions.get(i), symbols)) {
+                index = i;
+            }
+        }
+        if (add == (index != MTable.NONE)) {
+            return false;
+        }
+
+        if (add) {
+            if (symbols.length == 1 && !grammar.symbolTable.isTerminal(symbols[0]) && grammar.symbolTable.getName(symbols[0]).equals(symbol)) {
+                throw new IllegalArgumentException("Production " + symbol + "->" + symbol + " derives only itself.");
+            }
+            for (int s : symbols) {
+                String name = grammar.symbolTable.getName(s);
+                if (!grammar.symbolTable.isTerminal(s) && !name.equals(symbol) && !grammar.sources.containsKey(name)) {
+                    throw new NullPointerException("Simbol " + name + " not found.");
+                }
+            }
+            if (productions == null && grammar.heads.containsKey(symbol)) {
+                // The symbol belongs to a head made removing vices, its source head gets other ones.
+                for (String A : grammar.sources.keySet()) {
+                    if (grammar.derived.get(A).contains(symbol)) {
+                        refresh(A);
+                        break;
+                    }
+                }
+            }
+            if (productions == null) {
+                productions = new ArrayList();
+                grammar.sources.put(symbol, productions);
+                grammar.allocator.use(symbol);
+            }
+            productions.add(symbols);
+        } else {
+            if (productions.size() == 1) {
+                ArrayList<String> block = grammar.derived.get(symbol);
+                for (int user : uses(grammar.symbolTable.nonTerminal(symbol)).keySet()) {
+                    if (!block.contains(grammar.symbolTable.getName(user))) {
+                        throw new NullPointerException("Simbol " + symbol + " not found.");
+                    }
+                }
+                grammar.sources.remove(symbol);
+            }
+            productions.remove(index);
+        }
+        refresh(symbol);
+        return true;
+    }
+
+    /**
+     * Removes the vices of a source head again and brings the tables up to
+     * date with its new vice free heads.
+     *
+     * @param symbol source head, it may have no productions left.
+     */
+    private void refresh(String symbol) {
+        ArrayList<int[]> productions = grammar.sources.getOrDefault(symbol, new ArrayList());
+        long time = System.nanoTime();
+        grammar.phaseEvent = PhaseEvent.start();
+        grammar.factoringHeads = 0;
+        grammar.recursionHeads = 0;
+        ArrayList<String> block = new ArrayList();
+        HashMap<String, Head> free = new HashMap();
+        if (!productions.isEmpty()) {
+            Head head = new Head(symbol, grammar.symbolTable);
+            productions.forEach(head::addProduction);
+            block.add(symbol);
+            grammar.removeVices(head, block).forEach(h -> free.put(h.getSymbol(), h));
+        }
+
+        ArrayList<String> previous = grammar.derived.remove(symbol);
+        if (!block.isEmpty()) {
+            grammar.derived.put(symbol, block);
+        }
+        if (!update(previous != null ? previous : new ArrayList(), block, free, time)) {
+            if (previous != null) {
+                previous.forEach(grammar.heads::remove);
+            }
+            grammar.heads.putAll(free);
+            grammar.nonTerminals.clear();
+            grammar.sources.keySet().forEach(A -> grammar.nonTerminals.addAll(grammar.derived.get(A)));
+            grammar.build(time);
+        }
+    }
+
+    /**
+     * Replaces the vice free heads of one source head and brings the tables
+     * up to date. Rows of the old heads are reused by the new ones, new heads
+     * beyond them get rows at the end and the last rows move into the rows
+     * left over, so other rows keep their index unless they are moved. Only
+     * the rows which can reach a new head, or use a moved one, are computed
+     * again.
+     *
+     * @param previous old vice free heads, the source head first.
+     * @param block new vice free heads, the source head first.
+     * @param free new heads by symbol.
+     * @param time when the vices phase began.
+     * @return false, before changing anything, if every phase after the
+     * vices has to run again.
+     */
+    private boolean update(ArrayList<String> previous, ArrayList<String> block, HashMap<String, Head> free, long time) {
+        int n0 = grammar.nonTerminals.size();
+        if (n0 == 0 || block.isEmpty() && previous.contains(grammar.nonTerminals.get(0))) {
+            return false;
+        }
+
+        int columns = grammar.terminalSymbols.size();
+        int[] delta = new int[columns];
+        LinkedHashSet<Integer> added = new LinkedHashSet();
+        for (String A : previous) {
+            for (Production p : grammar.heads.get(A).getProductions()) {
+                for (int symbol : p.symbols) {
+                    if (grammar.symbolTable.isTerminal(symbol)) {
+                        delta[grammar.columnOfSymbol[symbol]]--;
+                    }
+                }
+            }
+        }
+        for (String A : block) {
+            for (Production p : free.get(A).getProductions()) {
+                for (int symbol : p.symbols) {
+                    if (grammar.symbolTable.isTerminal(symbol)) {
+                        int b = symbol < grammar.columnOfSymbol.length ? grammar.columnOfSymbol[symbol] : MTable.NONE;
+                        if (b != MTable.NONE) {
+                            delta[b]++;
+                        } else {
+                            added.add(symbol);
+                        }
+                    }
+                }
+            }
+        }
+        ArrayList<Integer> removed = new ArrayList();
+        for (int b = columns - 1; b >= 0; b--) {
+            if (delta[b] < 0 && grammar.terminalUses[b] + delta[b] == 0) {
+                removed.add(b);
+            }
+        }
+
+        HashSet<Integer> referenced = new HashSet();
+        for (String A : previous) {
+            Head head = grammar.heads.get(A);
+            use(head, -1, true);
+            for (Production p : head.getProductions()) {
+                for (int symbol : p.symbols) {
+                    if (!grammar.symbolTable.isTerminal(symbol)) {
+                        referenced.add(symbol);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Columns of removed terminals get the last column, new terminals
+         * get columns at the end, so the rest of the columns don't move.
+         */
+        int[] columnOrigins = null;
+        ArrayList<Integer> moved = new ArrayList();
+        boolean[] stale = new boolean[n0];
+        if (!removed.isEmpty() || !added.isEmpty()) {
+            columnOrigins = new int[columns + added.size()];
+            for (int b = 0; b < columns; b++) {
+                columnOrigins[b] = b;
+            }
+            Set<long[]> sets = Collections.newSetFromMap(new IdentityHashMap());
+            for (int A = 0; A < n0; A++) {
+                sets.add(grammar.firstSets[A]);
+                sets.add(grammar.nextSets[A]);
+            }
+            for (int b : removed) {
+                for (int A = 0; A < n0; A++) {
+                    stale[A] |= BitTools.get(grammar.firstSets[A], b) || BitTools.get(grammar.nextSets[A], b);
+                }
+                int last = grammar.terminalSymbols.size() - 1;
+                grammar.columnOfSymbol[grammar.symbolTable.terminal(grammar.terminalSymbols.get(b))] = MTable.NONE;
+                if (b != last) {
+                    grammar.terminalSymbols.set(b, grammar.terminalSymbols.get(last));
+                    grammar.terminalUses[b] = grammar.terminalUses[last];
+                    columnOrigins[b] = columnOrigins[last];
+                    if (last == grammar.endColumn) {
+                        grammar.endColumn = b;
+                    } else {
+                        grammar.columnOfSymbol[grammar.symbolTable.terminal(grammar.terminalSymbols.get(b))] = b;
+                    }
+                }
+                for (long[] set : sets) {
+                    if (BitTools.get(set, last)) {
+                        BitTools.set(set, b);
+                    } else {
+                        BitTools.clear(set, b);
+                    }
+                    BitTools.clear(set, last);
+                }
+                grammar.terminalSymbols.remove(last);
+            }
+            for (int b = 0; b < grammar.terminalSymbols.size(); b++) {
+                if (columnOrigins[b] != b) {
+                    moved.add(b);
+                }
+            }
+
+            int T = grammar.terminalSymbols.size() + added.size();
+            columnOrigins = Arrays.copyOf(columnOrigins, T);
+            grammar.terminalUses = Arrays.copyOf(grammar.terminalUses, T);
+            Arrays.fill(grammar.terminalUses, grammar.terminalSymbols.size(), T, 0);
+            grammar.columnOfSymbol = grow(grammar.columnOfSymbol, grammar.symbolTable.size());
+            for (int symbol : added) {
+                columnOrigins[grammar.terminalSymbols.size()] = MTable.NONE;
+                grammar.columnOfSymbol[symbol] = grammar.terminalSymbols.size();
+                grammar.terminalSymbols.add(grammar.symbolTable.getName(symbol));
+            }
+            if (BitTools.words(T) > grammar.setWords) {
+                grammar.setWords = Math.max(BitTools.words(T), grammar.setWords * 2);
+                for (int A = 0; A < n0; A++) {
+                    grammar.firstSets[A] = Arrays.copyOf(grammar.firstSets[A], grammar.setWords);
+                    grammar.nextSets[A] = Arrays.copyOf(grammar.nextSets[A], grammar.setWords);
+                }
+            }
+        }
+
+        /**
+         * origin holds the old row of every row which keeps its non
+         * terminal, NONE for rows of new non terminals.
+         */
+        int k = Math.min(previous.size(), block.size());
+        int n = n0 + block.size() - k;
+        String[] names = grammar.nonTerminals.toArray(new String[n]);
+        int[] origin = new int[n];
+        boolean[] changed = new boolean[n];
+        for (int A = 0; A < n; A++) {
+            origin[A] = A < n0 ? A : MTable.NONE;
+        }
+        for (int i = 0; i < block.size(); i++) {
+            int A = i < k ? grammar.nonTerminalIds.get(previous.get(i)) : n0 + i - k;
+            if (!block.get(i).equals(names[A])) {
+                origin[A] = MTable.NONE;
+            }
+            names[A] = block.get(i);
+            changed[A] = true;
+        }
+        ArrayList<Integer> left = new ArrayList();
+        for (int i = k; i < previous.size(); i++) {
+            left.add(grammar.nonTerminalIds.get(previous.get(i)));
+        }
+        left.sort((x, y) -> Integer.compare(y, x));
+        for (int A : left) {
+            n--;
+            if (A != n) {
+                names[A] = names[n];
+                origin[A] = origin[n];
+                changed[A] = changed[n];
+            }
+        }
+
+        for (String A : previous) {
+            if (!free.containsKey(A)) {
+                grammar.heads.remove(A);
+                grammar.nonTerminalIds.remove(A);
+                grammar.rowOfSymbol[grammar.symbolTable.nonTerminal(A)] = MTable.NONE;
+            }
+        }
+        grammar.heads.putAll(free);
+        grammar.rowOfSymbol = grow(grammar.rowOfSymbol, grammar.symbolTable.size());
+        while (grammar.nonTerminals.size() > n) {
+            grammar.nonTerminals.remove(grammar.nonTerminals.size() - 1);
+        }
+        for (int A = 0; A < n; A++) {
+            if (origin[A] != A) {
+                if (A < grammar.nonTerminals.size()) {
+                    grammar.nonTerminals.set(A, names[A]);
+                } else {
+                    grammar.nonTerminals.add(names[A]);
+                }
+                grammar.nonTerminalIds.put(names[A], A);
+                grammar.rowOfSymbol[grammar.symbolTable.nonTerminal(names[A])] = A;
+            }
+        }
+
+        int[][][] oldBodies = grammar.bodies;
+        long[][] oldFirst = grammar.firstSets;
+        long[][] oldNext = grammar.nextSets;
+        long[] oldNullable = grammar.nullableSet;
+        int[] oldConflicts = grammar.rowConflicts;
+        grammar.bodies = new int[n][][];
+        grammar.firstSets = new long[n][];
+        grammar.nextSets = new long[n][];
+        grammar.nullableSet = new long[BitTools.words(n)];
+        grammar.rowConflicts = new int[n];
+        for (int A = 0; A < n; A++) {
+            int o = origin[A];
+            if (o != MTable.NONE) {
+                grammar.bodies[A] = oldBodies[o];
+                grammar.firstSets[A] = oldFirst[o];
+                grammar.nextSets[A] = oldNext[o];
+                grammar.rowConflicts[A] = oldConflicts[o];
+                if (BitTools.get(oldNullable, o)) {
+                    BitTools.set(grammar.nullableSet, A);
+                }
+            } else {
+                grammar.firstSets[A] = new long[grammar.setWords];
+                grammar.nextSets[A] = new long[grammar.setWords];
+            }
+        }
+        long[][] previousFirst = grammar.firstSets.clone();
+        long[][] previousNext = grammar.nextSets.clone();
+        long[] previousNullable = grammar.nullableSet.clone();
+
+        /**
+         * Rows which use a moved row or terminal are encoded again, their
+         * meaning doesn't change. Rows whose sets hold a moved terminal
+         * list them again in column order, rows whose sets held a removed
+         * one are built again.
+         */
+        boolean[] dirty = changed.clone();
+        boolean[] reordered = new boolean[n];
+        for (int A = 0; A < n; A++) {
+            reordered[A] = origin[A] != MTable.NONE && stale[origin[A]];
+            if (origin[A] != MTable.NONE && origin[A] != A) {
+                for (int user : uses(grammar.symbolTable.nonTerminal(names[A])).keySet()) {
+                    dirty[grammar.rowOfSymbol[user]] = true;
+                }
+            }
+            for (int b : moved) {
+                reordered[A] |= BitTools.get(grammar.firstSets[A], b) || BitTools.get(grammar.nextSets[A], b);
+            }
+        }
+        for (int b : moved) {
+            if (b != grammar.endColumn) {
+                for (int user : uses(grammar.symbolTable.terminal(grammar.terminalSymbols.get(b))).keySet()) {
+                    dirty[grammar.rowOfSymbol[user]] = true;
+                }
+            }
+        }
+        for (String A : block) {
+            use(free.get(A), 1, true);
+        }
+        time = grammar.endPhase(Phase.Vices, time);
+
+        for (int A = 0; A < n; A++) {
+            if (dirty[A]) {
+                grammar.encodeRow(A);
+            }
+        }
+        time = grammar.endPhase(Phase.Encoding, time);
+
+        boolean[] nullableChanged = updateNullable(changed, previousNullable, origin);
+        time = grammar.endPhase(Phase.Nullable, time);
+        boolean[] firstChanged = updateFirst(changed, nullableChanged, previousFirst, origin);
+        time = grammar.endPhase(Phase.First, time);
+
+        boolean[] seeds = new boolean[n];
+        for (int symbol : referenced) {
+            int B = grammar.rowOf(symbol);
+            if (B != MTable.NONE) {
+                seeds[B] = true;
+            }
+        }
+        for (int A = 0; A < n; A++) {
+            if (changed[A]) {
+                seed(seeds, A);
+            }
+            if (firstChanged[A] || nullableChanged[A]) {
+                for (int user : usersOf(A)) {
+                    seed(seeds, user);
+                }
+            }
+        }
+        boolean[] nextChanged = updateNext(seeds, previousNext, origin);
+        time = grammar.endPhase(Phase.Next, time);
+
+        boolean[] rebuilt = new boolean[n];
+        boolean[] refreshed = new boolean[n];
+        for (int B = 0; B < n; B++) {
+            rebuilt[B] |= changed[B] || nullableChanged[B] || nextChanged[B] && grammar.nullable(B)
+                    || origin[B] != MTable.NONE && stale[origin[B]];
+            refreshed[B] = changed[B] || nullableChanged[B] || firstChanged[B] || nextChanged[B] || reordered[B];
+            if (firstChanged[B] || nullableChanged[B]) {
+                for (int A : usersOf(B)) {
+                    for (int[] body : grammar.bodies[A]) {
+                        rebuilt[A] |= body.length > 0 && body[0] == ~B;
+                    }
+                }
+            }
+        }
+
+        int[][] rowCells = new int[n][];
+        Production[][] rowProductions = new Production[n][];
+        grammar.conflicts = 0;
+        for (int A = 0; A < n; A++) {
+            if (changed[A] || nullableChanged[A] || firstChanged[A] || reordered[A]) {
+                grammar.fillFirst(A);
+            }
+            if (changed[A] || nextChanged[A] || reordered[A]) {
+                grammar.fillNext(A);
+            }
+            if (rebuilt[A]) {
+                rowCells[A] = tableRow(A);
+                ArrayList<Production> productions = grammar.heads.get(names[A]).getProductions();
+                rowProductions[A] = new Production[rowCells[A].length];
+                for (int b = 0; b < rowCells[A].length; b++) {
+                    rowProductions[A][b] = rowCells[A][b] != MTable.NONE ? productions.get(rowCells[A][b]) : null;
+                }
+            }
+            grammar.conflicts += grammar.rowConflicts[A];
+        }
+        grammar.mTable.patch(grammar.nonTerminals, grammar.terminalSymbols, origin, columnOrigins, rowProductions);
+        time = grammar.endPhase(Phase.MTable, time);
+
+        grammar.compiled = grammar.compiled.patch(grammar, origin, columnOrigins, dirty, refreshed, rowCells);
+        grammar.endPhase(Phase.Compile, time);
+        return true;
+    }
+
+    /**
+     * Counts the uses of the symbols of a head, users of every symbol are
+     * kept by symbol id so they survive moving rows and columns.
+     *
+     * @param head vice free head.
+     * @param delta 1 to add the uses, -1 to remove them.
+     * @param terminals whether the uses of terminal columns are counted too.
+     */
+    private void use(Head head, int delta, boolean terminals) {
+        int user = head.getSymbolId();
+        for (Production p : head.getProductions()) {
+            for (int symbol : p.symbols) {
+                HashMap<Integer, Integer> counts = uses(symbol);
+                int count = counts.getOrDefault(user, 0) + delta;
+                if (count > 0) {
+                    counts.put(user, count);
+                } else {
+                    counts.remove(user);
+                }
+                if (terminals && grammar.symbolTable.isTerminal(symbol)) {
+                    grammar.terminalUses[grammar.columnOfSymbol[symbol]] += delta;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the heads which use a symbol.
+     *
+     * @param symbol symbol id.
+     * @return count of uses by symbol id of the head.
+     */
+    private HashMap<Integer, Integer> uses(int symbol) {
+        while (users.size() <= symbol) {
+            users.add(null);
+        }
+        if (users.get(symbol) == null) {
+            users.set(symbol, new HashMap());
+        }
+        return users.get(symbol);
+    }
+
+    /**
+     * Get the rows which use a row.
+     *
+     * @param B non terminal index.
+     * @return non terminal indexes.
+     */
+    private int[] usersOf(int B) {
+        HashMap<Integer, Integer> counts = uses(grammar.symbolTable.nonTerminal(grammar.nonTerminals.get(B)));
+        int[] rows = new int[counts.size()];
+        int i = 0;
+        for (int user : counts.keySet()) {
+            rows[i++] = grammar.rowOfSymbol[user];
+        }
+        return rows;
+    }
+
+    private static int[] grow(int[] array, int size) {
+        if (array.length >= size) {
+            return array;
+        }
+        int[] grown = Arrays.copyOf(array, size);
+        Arrays.fill(grown, array.length, size, MTable.NONE);
+        return grown;
+    }
+
+    /**
+     * Marks every non terminal the productions of A use.
+     */
+    private void seed(boolean[] seeds, int A) {
+        for (int[] body : grammar.bodies[A]) {
+            for (int symbol : body) {
+                if (symbol < 0) {
+                    seeds[~symbol] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds nullability again for the changed rows and every row which can
+     * reach them through productions without terminals, the rest keeps its
+     * nullability. Same counter based fixed point as generateNullable.
+     *
+     * @param changed rows with new productions.
+     * @param previous nullable rows before the edit.
+     * @param origin old row of every row, NONE for new non terminals.
+     * @return rows whose nullability changed.
+     */
+    private boolean[] updateNullable(boolean[] changed, long[] previous, int[] origin) {
+        int n = grammar.nonTerminals.size();
+        boolean[] region = new boolean[n];
+        ArrayList<Integer> rows = new ArrayList();
+        for (int A = 0; A < n; A++) {
+            if (changed[A]) {
+                region[A] = true;
+                rows.add(A);
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            int B = rows.get(i);
+            for (int A : usersOf(B)) {
+                boolean reaches = false;
+                for (int[] body : grammar.bodies[A]) {
+                    boolean onlyNonTerminals = true;
+                    boolean uses = false;
+                    for (int symbol : body) {
+                        onlyNonTerminals &= symbol < 0;
+                        uses |= symbol == ~B;
+                    }
+                    reaches |= onlyNonTerminals && uses;
+                }
+                if (!region[A] && reaches) {
+                    region[A] = true;
+                    rows.add(A);
+                }
+            }
+        }
+
+        ArrayList<Production> productions = new ArrayList();
+        ArrayList<Integer> owners = new ArrayList();
+        ArrayList<Integer> counts = new ArrayList();
+        HashMap<Integer, ArrayList<Integer>> occurrences = new HashMap();
+        for (int A : rows) {
+            BitTools.clear(grammar.nullableSet, A);
+        }
+        for (int A : rows) {
+            ArrayList<Production> owned = grammar.heads.get(grammar.nonTerminals.get(A)).getProductions();
+            for (int p = 0; p < grammar.bodies[A].length; p++) {
+                int q = productions.size();
+                int count = 0;
+                for (int i = 0; i < grammar.bodies[A][p].length && count >= 0; i++) {
+                    int symbol = grammar.bodies[A][p][i];
+                    if (symbol >= 0 || !region[~symbol] && !grammar.nullable(~symbol)) {
+                        count = -1;
+                    } else if (region[~symbol]) {
+                        occurrences.computeIfAbsent(~symbol, B -> new ArrayList()).add(q);
+                        count++;
+                    }
+                }
+                owned.get(p).nullableStatus = NullableStatus.NotNullable;
+                productions.add(owned.get(p));
+                owners.add(A);
+                counts.add(count);
+            }
+        }
+
+        int[] pending = counts.stream().mapToInt(Integer::intValue).toArray();
+        ArrayDeque<Integer> worklist = new ArrayDeque();
+        for (int q = 0; q < pending.length; q++) {
+            if (pending[q] == 0) {
+                productions.get(q).nullableStatus = NullableStatus.Nullable;
+                if (!grammar.nullable(owners.get(q))) {
+                    BitTools.set(grammar.nullableSet, owners.get(q));
+                    worklist.add(owners.get(q));
+                }
+            }
+        }
+        while (!worklist.isEmpty()) {
+            int B = worklist.poll();
+            for (int q : occurrences.getOrDefault(B, new ArrayList<>())) {
+                if (--pending[q] == 0) {
+                    productions.get(q).nullableStatus = NullableStatus.Nullable;
+                    if (!grammar.nullable(owners.get(q))) {
+                        BitTools.set(grammar.nullableSet, owners.get(q));
+                        worklist.add(owners.get(q));
+                    }
+                }
+            }
+        }
+
+        boolean[] result = new boolean[n];
+        for (int A : rows) {
+            result[A] = origin[A] == MTable.NONE || grammar.nullable(A) != BitTools.get(previous, A);
+        }
+        return result;
+    }
+
+    /**
+     * Generates PRIMERO again for the changed rows, the rows which use a
+     * row whose nullability changed and every row they can start, the rest
+     * keeps its PRIMERO. Same worklist as generatePRIMERO.
+     *
+     * @param changed rows with new productions.
+     * @param nullableChanged rows whose nullability changed.
+     * @param previous PRIMERO bit sets before the edit.
+     * @param origin old row of every row, NONE for new non terminals.
+     * @return rows whose PRIMERO changed.
+     */
+    private boolean[] updateFirst(boolean[] changed, boolean[] nullableChanged, long[][] previous, int[] origin) {
+        int n = grammar.nonTerminals.size();
+        int words = grammar.setWords;
+        boolean[] region = new boolean[n];
+        ArrayList<Integer> rows = new ArrayList();
+        for (int A = 0; A < n; A++) {
+            if (changed[A] || nullableChanged[A]) {
+                region[A] = true;
+                rows.add(A);
+            }
+        }
+        for (int B = 0; B < n; B++) {
+            if (nullableChanged[B]) {
+                for (int A : usersOf(B)) {
+                    if (!region[A]) {
+                        region[A] = true;
+                        rows.add(A);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            int B = rows.get(i);
+            for (int A : usersOf(B)) {
+                boolean starts = false;
+                for (int[] body : grammar.bodies[A]) {
+                    for (int symbol : body) {
+                        if (symbol >= 0) {
+                            break;
+                        }
+                        starts |= symbol == ~B;
+                        if (!grammar.nullable(~symbol)) {
+                            break;
+                        }
+                    }
+                }
+                if (!region[A] && starts) {
+                    region[A] = true;
+                    rows.add(A);
+                }
+            }
+        }
+
+        HashMap<Integer, ArrayList<Integer>> dependents = new HashMap();
+        for (int A : rows) {
+            grammar.firstSets[A] = new long[words];
+        }
+        for (int A : rows) {
+            for (int[] body : grammar.bodies[A]) {
+                for (int symbol : body) {
+                    if (symbol >= 0) {
+                        BitTools.set(grammar.firstSets[A], symbol);
+                        break;
+                    }
+
+                    if (region[~symbol]) {
+                        dependents.computeIfAbsent(~symbol, B -> new ArrayList()).add(A);
+                    } else {
+                        BitTools.or(grammar.firstSets[A], grammar.firstSets[~symbol]);
+                    }
+                    if (!grammar.nullable(~symbol)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        ArrayDeque<Integer> worklist = new ArrayDeque(rows);
+        boolean[] queued = region.clone();
+        while (!worklist.isEmpty()) {
+            int B = worklist.poll();
+            queued[B] = false;
+            for (int A : dependents.getOrDefault(B, new ArrayList<>())) {
+                if (BitTools.or(grammar.firstSets[A], grammar.firstSets[B]) && !queued[A]) {
+                    worklist.add(A);
+                    queued[A] = true;
+                }
+            }
+        }
+
+        boolean[] result = new boolean[n];
+        for (int A : rows) {
+            result[A] = origin[A] == MTable.NONE || !Arrays.equals(grammar.firstSets[A], previous[A]);
+        }
+        return result;
+    }
+
+    /**
+     * Looks for the next again of the seed rows and every row which can end
+     * a production of them, the rest keeps its next. Constraints inside the
+     * region are propagated with a worklist.
+     *
+     * @param seeds rows used next to something that changed.
+     * @param previous next bit sets before the edit.
+     * @param origin old row of every row, NONE for new non terminals.
+     * @return rows whose next changed.
+     */
+    private boolean[] updateNext(boolean[] seeds, long[][] previous, int[] origin) {
+        int n = grammar.nonTerminals.size();
+        int words = grammar.setWords;
+        boolean[] region = seeds.clone();
+        ArrayList<Integer> rows = new ArrayList();
+        for (int A = 0; A < n; A++) {
+            if (region[A]) {
+                rows.add(A);
+            }
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            int A = rows.get(i);
+            for (int[] body : grammar.bodies[A]) {
+                for (int j = body.length - 1; j >= 0 && body[j] < 0; j--) {
+                    int B = ~body[j];
+                    if (B != A && !region[B]) {
+                        region[B] = true;
+                        rows.add(B);
+                    }
+                    if (!grammar.nullable(B)) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        HashMap<Integer, ArrayList<Integer>> constraints = new HashMap();
+        for (int B : rows) {
+            grammar.nextSets[B] = new long[words];
+            if (B == 0) {
+                BitTools.set(grammar.nextSets[B], grammar.endColumn);
+            }
+        }
+        for (int B : rows) {
+            for (int A : usersOf(B)) {
+                boolean constrained = false;
+                for (int[] body : grammar.bodies[A]) {
+                    for (int i = 0; i < body.length; i++) {
+                        if (body[i] != ~B) {
+                            continue;
+                        }
+                        boolean suffixNullable = true;
+                        for (int j = i + 1; j < body.length && suffixNullable; j++) {
+                            if (body[j] >= 0) {
+                                BitTools.set(grammar.nextSets[B], body[j]);
+                                suffixNullable = false;
+                            } else {
+                                BitTools.or(grammar.nextSets[B], grammar.firstSets[~body[j]]);
+                                suffixNullable = grammar.nullable(~body[j]);
+                            }
+                        }
+                        constrained |= suffixNullable && A != B;
+                    }
+                }
+                if (constrained && region[A]) {
+                    constraints.computeIfAbsent(A, C -> new ArrayList()).add(B);
+                } else if (constrained) {
+                    BitTools.or(grammar.nextSets[B], grammar.nextSets[A]);
+                }
+            }
+        }
+
+        ArrayDeque<Integer> worklist = new ArrayDeque(rows);
+        boolean[] queued = region.clone();
+        while (!worklist.isEmpty()) {
+            int A = worklist.poll();
+            queued[A] = false;
+            for (int B : constraints.getOrDefault(A, new ArrayList<>())) {
+                if (BitTools.or(grammar.nextSets[B], grammar.nextSets[A]) && !queued[B]) {
+                    worklist.add(B);
+                    queued[B] = true;
+                }
+            }
+        }
+
+        boolean[] result = new boolean[n];
+        for (int A : rows) {
+            result[A] = origin[A] == MTable.NONE || !Arrays.equals(grammar.nextSets[A], previous[A]);
+        }
+        return result;
+    }
+
+    /**
+     * Builds the MTable row of A from the bit sets, following the same order
+     * generateMTable does so the same production keeps a conflicting cell.
+     *
+     * @param A non terminal index.
+     * @return index in the head of the production of every column, NONE for
+     * empty cells.
+     */
+    private int[] tableRow(int A) {
+        int[] row = new int[grammar.terminalSymbols.size()];
+        Arrays.fill(row, MTable.NONE);
+        grammar.rowConflicts[A] = 0;
+        int[][] productions = grammar.bodies[A];
+
+        for (int b = 0; b < row.length; b++) {
+            if (BitTools.get(grammar.firstSets[A], b)) {
+                for (int p = 0; p < productions.length; p++) {
+                    int[] body = productions[p];
+                    if (body.length > 0 && (body[0] == b || body[0] < 0 && BitTools.get(grammar.firstSets[~body[0]], b))) {
+                        claim(row, A, b, p);
+                    }
+                }
+            }
+        }
+        if (grammar.nullable(A)) {
+            for (int p = 0; p < productions.length; p++) {
+                int[] body = productions[p];
+                if (body.length == 0 || body[0] < 0 && grammar.nullable(~body[0])) {
+                    for (int b = 0; b < row.length; b++) {
+                        if (BitTools.get(grammar.nextSets[A], b)) {
+                            claim(row, A, b, p);
+                        }
+                    }
+                }
+            }
+        }
+        return row;
+    }
+
+    private void claim(int[] row, int A, int b, int p) {
+        if (row[b] == MTable.NONE) {
+            row[b] = p;
+        } else {
+            grammar.rowConflicts[A]++;
+        }
+    }
+}
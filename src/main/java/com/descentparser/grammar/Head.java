@@ -25,17 +25,29 @@ import java.util.ArrayList;
 public class Head {
 
     private final String simbol;
+    private final SymbolTable table;
     private final ArrayList<Production> productions;
     private final ArrayList<String> first;
     private final ArrayList<String> next;
 
     /**
-     * Head builder.
+     * Head builder, its symbols are interned in a table of its own.
      *
      * @param symbol
      */
     public Head(String symbol) {
+        this(symbol, new SymbolTable());
+    }
+
+    /**
+     * Head builder.
+     *
+     * @param symbol
+     * @param table table where the symbols of the productions are interned.
+     */
+    public Head(String symbol, SymbolTable table) {
         this.simbol = symbol;
+        this.table = table;
         this.productions = new ArrayList();
         this.next = new ArrayList();
         this.first = new ArrayList();
@@ -50,6 +62,24 @@ public class Head {
         return simbol;
     }
 
+    /**
+     * Get the id of head symbol.
+     *
+     * @return non terminal id in the symbol table.
+     */
+    public int getSymbolId() {
+        return table.nonTerminal(simbol);
+    }
+
+    /**
+     * Get the table where the symbols of the productions are interned.
+     *
+     * @return symbol table.
+     */
+    public SymbolTable getSymbolTable() {
+        return table;
+    }
+
     /**
      * Get productions linked to head simbol.
      *
@@ -72,7 +102,8 @@ public class Head {
     } 
 
     /**
-     * Format a production and adds it to productions list.
+     * Format a production and adds it to productions list if there isn't
+     * another one with the same symbols.
      *
      * @param alpha production to add.
      */
@@ -80,31 +111,37 @@ public class Head {
         if (alpha.contains("->")) {
             String[] prodParts = alpha.split("->");
             if (prodParts[0].compareTo(prodParts[0]) == 0 && !prodParts[1].isEmpty()) {
-                boolean founded = false;
-                int i = 0;
-                while (i < productions.size()) {
-                    if (productions.get(i).compareTo(prodParts[1]) == 0) {
-                        founded = true;
-                    }
-                    i++;
-                }
-                if (!founded) {
-                    productions.add(new Production(prodParts[1]));
-                }
-            }
-        } else {
-            boolean founded = false;
-            int i = 0;
-            while (i < productions.size()) {
-                if (productions.get(i).compareTo(alpha) == 0) {
-                    founded = true;
-                }
-                i++;
+                alpha = prodParts[1];
+            } else {
+                return;
             }
-            if (!founded) {
-                productions.add(new Production(alpha));
+        }
+
+        Production production = new Production(alpha, table);
+        if (!hasProduction(production.symbols)) {
+            productions.add(production);
+        }
+    }
+
+    /**
+     * Adds a production made of symbols if there isn't another one with the
+     * same symbols.
+     *
+     * @param symbols symbol ids in the table of this head.
+     */
+    public void addProduction(int[] symbols) {
+        if (!hasProduction(symbols)) {
+            productions.add(new Production(symbols, table));
+        }
+    }
+
+    private boolean hasProduction(int[] symbols) {
+        for (Production production : productions) {
+            if (production.hasSymbols(symbols)) {
+                return true;
             }
         }
+        return false;
     }
 
     /**
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.Arrays;
+
+/**
+ * Recognizer for a text which is edited between parses, like an editor
+ * field checked after every keystroke.
+ *
+ * While parsing, the parse stack is copied every interval chars, right
+ * after a code point is consumed, when the state depends only on the text
+ * before. After an edit the parse resumes from the last checkpoint before
+ * the change and stops at the first old checkpoint past the change whose
+ * stack is the same, since the rest of the text didn't change either. The
+ * old verdict and checkpoints are kept from there, so the work depends on
+ * the edit size and on how far its effect reaches, not on the text size.
+ *
+ * Grammars with a lexer are parsed from the beginning on every update.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class IncrementalParser {
+
+    public static final int DEFAULT_INTERVAL = 256;
+
+    private final CompiledGrammar grammar;
+    private final int interval;
+    private final ParseInput.Chars input;
+    private int[] stack;
+
+    private int[] offsets;
+    private int[][] stacks;
+    private int count;
+    private int[] newOffsets;
+    private int[][] newStacks;
+    private int newCount;
+
+    private int length;
+    private boolean accepted;
+    private long stopEnd;
+    private long reparsed;
+
+    /**
+     * IncrementalParser builder with the default checkpoint interval.
+     *
+     * @param grammar compiled grammar.
+     */
+    public IncrementalParser(CompiledGrammar grammar) {
+        this(grammar, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * IncrementalParser builder.
+     *
+     * @param grammar compiled grammar.
+     * @param interval chars between checkpoints, shorter ones make updates
+     * cheaper and take more memory.
+     */
+    public IncrementalParser(CompiledGrammar grammar, int interval) {
+        if (grammar == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("Interval must be positive.");
+        }
+        this.grammar = grammar;
+        this.interval = interval;
+        input = new ParseInput.Chars("");
+        stack = new int[ParseContext.DEFAULT_STACK_SIZE];
+        offsets = new int[16];
+        stacks = new int[16][];
+        newOffsets = new int[16];
+        newStacks = new int[16][];
+    }
+
+    /**
+     * Parses a whole text, dropping the checkpoints of the previous one.
+     *
+     * @param text text to recognize.
+     * @return true if text is recognized.
+     */
+    public boolean parse(CharSequence text) {
+        count = 0;
+        length = text.length();
+        int start = grammar.getStart();
+        if (start == MTable.NONE || grammar.getLexer() != null) {
+            accepted = grammar.recognize(text);
+            reparsed = length;
+            return accepted;
+        }
+        add(0, new int[]{grammar.getEnd(), start});
+        return run(text, 0, count, 0);
+    }
+
+    /**
+     * Recognizes text after an edit of the last parsed text, the chars from
+     * offset to offset + removed were replaced by the chars from offset to
+     * offset + inserted of text.
+     *
+     * @param text whole text after the edit.
+     * @param offset where the edit starts.
+     * @param removed chars removed from the last text.
+     * @param inserted chars inserted in their place.
+     * @return true if text is recognized.
+     * @throws IllegalArgumentException if the edit doesn't fit the last text
+     * and text.
+     */
+    public boolean update(CharSequence text, int offset, int removed, int inserted) throws IllegalArgumentException {
+        if (offset < 0 || removed < 0 || inserted < 0 || offset + removed > length
+                || text.length() != length - removed + inserted) {
+            throw new IllegalArgumentException("Edit doesn't fit the parsed text.");
+        }
+        if (count == 0) {
+            return parse(text);
+        }
+
+        length = text.length();
+        if (offset >= stopEnd) {
+            // The verdict was reached before the edit.
+            reparsed = 0;
+            return accepted;
+        }
+
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        int next = low + 1;
+        while (next < count && offsets[next] < offset + removed) {
+            next++;
+        }
+        return run(text, low, next, inserted - removed);
+    }
+
+    /**
+     * Runs the MTable loop from a checkpoint, checking convergence on the old
+     * checkpoints past the edit.
+     *
+     * @param text text to recognize.
+     * @param from checkpoint to resume from, later ones are replaced.
+     * @param next first old checkpoint past the edit.
+     * @param delta length change of the edit.
+     */
+    private boolean run(CharSequence text, int from, int next, int delta) {
+        int end = grammar.getEnd();
+        int terminals = grammar.getTerminalCount();
+        int[] checkpoint = stacks[from];
+        int top = checkpoint.length;
+        if (top > stack.length) {
+            stack = new int[Math.max(stack.length * 2, top)];
+        }
+        System.arraycopy(checkpoint, 0, stack, 0, top);
+        newCount = 0;
+        int last = offsets[from];
+
+        input.reset(text);
+        input.offset = last;
+        input.start();
+        int a = grammar.inputSymbol(input.codePoint);
+
+        while (true) {
+            if (a != CompiledGrammar.EPSILON) {
+                int X = stack[--top];
+
+                if (X == end) {
+                    return finish(from, X == a);
+                } else if (X != a) {
+                    if (X != CompiledGrammar.EPSILON) {
+                        int id = X < terminals ? MTable.NONE : grammar.getProductionId(X - terminals, a);
+
+                        if (id == MTable.NONE) {
+                            return finish(from, false);
+                        }
+
+                        int[] alpha = grammar.getReversedAlpha(id);
+                        if (top + alpha.length > stack.length) {
+                            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + alpha.length));
+                        }
+                        System.arraycopy(alpha, 0, stack, top, alpha.length);
+                        top += alpha.length;
+                    }
+                    continue;
+                }
+            }
+
+            // A code point is consumed, the state depends only on the text before.
+            input.advance();
+            a = grammar.inputSymbol(input.codePoint);
+            int offset = (int) input.offset;
+            while (next < count && offsets[next] + delta < offset) {
+                next++;
+            }
+            if (next < count && offsets[next] + delta == offset
+                    && Arrays.equals(stack, 0, top, stacks[next], 0, stacks[next].length)) {
+                reparsed = offset - offsets[from];
+                return converge(from, next, delta);
+            }
+            if (offset - last >= interval) {
+                addNew(offset, Arrays.copyOf(stack, top));
+                last = offset;
+            }
+        }
+    }
+
+    /**
+     * Keeps the checkpoints up to from and the new ones, and the verdict the
+     * loop reached.
+     */
+    private boolean finish(int from, boolean verdict) {
+        reparsed = input.offset - offsets[from];
+        stopEnd = input.itemEnd();
+        accepted = verdict;
+        splice(from, count, 0);
+        return verdict;
+    }
+
+    /**
+     * Keeps the old checkpoints from next on, shifted, and the old verdict.
+     */
+    private boolean converge(int from, int next, int delta) {
+        stopEnd += delta;
+        splice(from, next, delta);
+        return accepted;
+    }
+
+    /**
+     * Replaces the checkpoints between from and next by the new ones.
+     */
+    private void splice(int from, int next, int delta) {
+        int kept = count - next;
+        int size = from + 1 + newCount + kept;
+        if (size > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(offsets.length * 2, size));
+            stacks = Arrays.copyOf(stacks, offsets.length);
+        }
+        System.arraycopy(offsets, next, offsets, from + 1 + newCount, kept);
+        System.arraycopy(stacks, next, stacks, from + 1 + newCount, kept);
+        System.arraycopy(newOffsets, 0, offsets, from + 1, newCount);
+        System.arraycopy(newStacks, 0, stacks, from + 1, newCount);
+        for (int i = from + 1 + newCount; i < size; i++) {
+            offsets[i] += delta;
+        }
+        for (int i = size; i < count; i++) {
+            stacks[i] = null;
+        }
+        Arrays.fill(newStacks, 0, newCount, null);
+        count = size;
+    }
+
+    private void add(int offset, int[] checkpoint) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            stacks = Arrays.copyOf(stacks, count * 2);
+        }
+        offsets[count] = offset;
+        stacks[count++] = checkpoint;
+    }
+
+    private void addNew(int offset, int[] checkpoint) {
+        if (newCount == newOffsets.length) {
+            newOffsets = Arrays.copyOf(newOffsets, newCount * 2);
+            newStacks = Arrays.copyOf(newStacks, newCount * 2);
+        }
+        newOffsets[newCount] = offset;
+        newStacks[newCount++] = checkpoint;
+    }
+
+    /**
+     * Determines whether the last parsed text is recognized.
+     *
+     * @return last verdict.
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns how many chars the last parse or update went over.
+     *
+     * @return chars from the resumed checkpoint to where the parse stopped
+     * or converged.
+     */
+    public long getReparsedLength() {
+        return reparsed;
+    }
+
+    /**
+     * Returns how many stack copies are kept.
+     *
+     * @return checkpoints count.
+     */
+    public int getCheckpointCount() {
+        return count;
+    }
+
+    /**
+     * Get the grammar texts are recognized with.
+     *
+     * @return compiled grammar.
+     */
+    public CompiledGrammar getGrammar() {
+        return grammar;
+    }
+}
@@ -15,14 +15,193 @@
  */
 package com.descentparser.grammar;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 
 /**
- * Mtable hashMap based;
+ * Mtable backed by a dense int array, rows are non terminals, columns are
+ * terminals and cells hold production ids. Tables patched after an edit
+ * keep room for more rows and columns, ids of productions no cell links are
+ * reused.
  *
  * @author José Polo <Github https://github.com/jd45p8>
  */
-public class MTable extends HashMap<String, HashMap<String, Production>> {
+public class MTable {
+
+    /**
+     * Value of an empty cell or an unknown symbol.
+     */
+    public static final int NONE = -1;
+
+    private final HashMap<String, Integer> rows;
+    private final HashMap<String, Integer> columns;
+    private CodePointIndex rowIndex;
+    private CodePointIndex columnIndex;
+    private final ArrayList<String> rowSymbols;
+    private final ArrayList<String> columnSymbols;
+    private final ArrayList<Production> productions;
+    private final IdentityHashMap<Production, Integer> productionIds;
+    private final ArrayDeque<Integer> freeIds;
+    private int[] links;
+    private int[] cells;
+    private int stride;
+
+    /**
+     * MTable builder.
+     */
+    public MTable() {
+        rows = new HashMap();
+        columns = new HashMap();
+        rowSymbols = new ArrayList();
+        columnSymbols = new ArrayList();
+        productions = new ArrayList();
+        productionIds = new IdentityHashMap();
+        freeIds = new ArrayDeque();
+        init(new ArrayList(), new ArrayList());
+    }
+
+    /**
+     * Interns non terminals and terminals into dense ids and clears every
+     * cell.
+     *
+     * @param nonTerminals non terminals, its order gives the row ids.
+     * @param terminals terminals, its order gives the column ids.
+     */
+    public final void init(List<String> nonTerminals, List<String> terminals) {
+        rows.clear();
+        columns.clear();
+        rowSymbols.clear();
+        columnSymbols.clear();
+        productions.clear();
+        productionIds.clear();
+        freeIds.clear();
+        links = new int[0];
+
+        nonTerminals.forEach(A -> {
+            rows.put(A, rowSymbols.size());
+            rowSymbols.add(A);
+        });
+        terminals.forEach(b -> {
+            columns.put(b, columnSymbols.size());
+            columnSymbols.add(b);
+        });
+        rowIndex = new CodePointIndex(rowSymbols);
+        columnIndex = new CodePointIndex(columnSymbols);
+
+        stride = columnSymbols.size();
+        cells = new int[rowSymbols.size() * stride];
+        Arrays.fill(cells, NONE);
+    }
+
+    /**
+     * Get the row id of a non terminal.
+     *
+     * @param A non terminal identifier.
+     * @return row id or NONE if A isn't a row.
+     */
+    public int getRow(String A) {
+        Integer row = rows.get(A);
+        return row != null ? row : NONE;
+    }
+
+    /**
+     * Get the row id of a one code point non terminal without allocating.
+     *
+     * @param codePoint non terminal code point.
+     * @return row id or NONE if codePoint isn't a row.
+     */
+    public int getRow(int codePoint) {
+        return rowIndex.get(codePoint);
+    }
+
+    /**
+     * Get the column id of a terminal.
+     *
+     * @param b terminal identifier.
+     * @return column id or NONE if b isn't a column.
+     */
+    public int getColumn(String b) {
+        if (b.length() == 1 && b.charAt(0) < 128) {
+            return columnIndex.get(b.charAt(0));
+        }
+        Integer column = columns.get(b);
+        return column != null ? column : NONE;
+    }
+
+    /**
+     * Get the column id of a one code point terminal without allocating.
+     *
+     * @param codePoint terminal code point.
+     * @return column id or NONE if codePoint isn't a column.
+     */
+    public int getColumn(int codePoint) {
+        return columnIndex.get(codePoint);
+    }
+
+    /**
+     * Get the non terminal of a row.
+     *
+     * @param row row id.
+     * @return non terminal identifier.
+     */
+    public String getRowSymbol(int row) {
+        return rowSymbols.get(row);
+    }
+
+    /**
+     * Get the terminal of a column.
+     *
+     * @param column column id.
+     * @return terminal identifier.
+     */
+    public String getColumnSymbol(int column) {
+        return columnSymbols.get(column);
+    }
+
+    public int getRowCount() {
+        return rowSymbols.size();
+    }
+
+    public int getColumnCount() {
+        return columnSymbols.size();
+    }
+
+    /**
+     * Get the id of the production linked to a row and a column.
+     *
+     * @param row row id.
+     * @param column column id.
+     * @return production id or NONE if the cell is empty.
+     */
+    public int getProductionId(int row, int column) {
+        if (row < 0 || row >= rowSymbols.size() || column < 0 || column >= columnSymbols.size()) {
+            return NONE;
+        }
+        return cells[row * stride + column];
+    }
+
+    /**
+     * Get the production with the given id.
+     *
+     * @param id production id.
+     * @return production with that id, null if no cell links it.
+     */
+    public Production getProduction(int id) {
+        return productions.get(id);
+    }
+
+    /**
+     * Returns how many productions are linked in the table.
+     *
+     * @return productions count.
+     */
+    public int getProductionCount() {
+        return productions.size() - freeIds.size();
+    }
 
     /**
      * Get the production linked to non terminal A and terminal a.
@@ -32,14 +211,8 @@ public class MTable extends HashMap<String, HashMap<String, Production>> {
      * @return producction if found.
      */
     public Production getProduction(String A, String b) {
-        HashMap<String, Production> hashA = this.get(A);
-        if (hashA != null) {
-            Production p = hashA.get(b);
-            if (p != null) {
-                return p;
-            }
-        }
-        return null;
+        int id = getProductionId(getRow(A), getColumn(b));
+        return id != NONE ? productions.get(id) : null;
     }
 
     /**
@@ -53,7 +226,7 @@ public class MTable extends HashMap<String, HashMap<String, Production>> {
     public String getProductionString(String A, String b) {
         Production p = getProduction(A, b);
         if (p != null) {
-            return A + "->" + getProduction(A, b).alpha;
+            return A + "->" + p.alpha;
         }
         return null;
     }
@@ -64,14 +237,175 @@ public class MTable extends HashMap<String, HashMap<String, Production>> {
      * @param A non terminal identifier.
      * @param b temrinal identifier.
      * @param p production to link.
+     * @throws NullPointerException if A or b weren't interned by init.
+     */
+    public void setProduction(String A, String b, Production p) throws NullPointerException {
+        int row = getRow(A);
+        int column = getColumn(b);
+        if (row == NONE || column == NONE) {
+            throw new NullPointerException("Simbol " + (row == NONE ? A : b) + " not found.");
+        }
+
+        link(row * stride + column, intern(p));
+    }
+
+    /**
+     * Brings the table to the layout of an edited grammar in place. Columns
+     * and rows which moved are copied from where they were, rows set again
+     * get their productions and the rest is left untouched.
+     *
+     * @param nonTerminals non terminals, its order gives the row ids.
+     * @param terminals terminals, its order gives the column ids.
+     * @param rowOrigins old row every row is copied from, rows either keep
+     * theirs or come from rows past the new rows count.
+     * @param columnOrigins old column of every column, NONE for new
+     * terminals, moved ones come from columns past the new columns count.
+     * Null if the terminals didn't change.
+     * @param rowCells production of every column of the rows set again,
+     * null for copied rows.
+     */
+    void patch(List<String> nonTerminals, List<String> terminals, int[] rowOrigins, int[] columnOrigins,
+            Production[][] rowCells) {
+        int oldRows = rowSymbols.size();
+        int oldColumns = columnSymbols.size();
+        int T = terminals.size();
+        if (columnOrigins != null) {
+            if (T > stride) {
+                relayout(Math.max(T, stride + stride / 2));
+            }
+            for (int column = 0; column < Math.min(T, oldColumns); column++) {
+                int origin = columnOrigins[column];
+                for (int row = 0; origin != column && row < oldRows; row++) {
+                    link(row * stride + column, origin != NONE ? cells[row * stride + origin] : NONE);
+                }
+            }
+            for (int column = T; column < oldColumns; column++) {
+                for (int row = 0; row < oldRows; row++) {
+                    link(row * stride + column, NONE);
+                }
+            }
+            if (rename(columns, columnSymbols, terminals)) {
+                columnIndex = new CodePointIndex(columnSymbols);
+            }
+        }
+
+        int n = nonTerminals.size();
+        int capacity = cells.length / stride;
+        if (n > capacity) {
+            int size = cells.length;
+            cells = Arrays.copyOf(cells, Math.max(n, capacity + capacity / 2) * stride);
+            Arrays.fill(cells, size, cells.length, NONE);
+        }
+        for (int row = 0; row < n; row++) {
+            if (rowCells[row] != null) {
+                for (int column = 0; column < T; column++) {
+                    Production p = rowCells[row][column];
+                    link(row * stride + column, p != null ? intern(p) : NONE);
+                }
+            } else if (rowOrigins[row] != row) {
+                int origin = rowOrigins[row] * stride;
+                for (int column = 0; column < T; column++) {
+                    link(row * stride + column, cells[origin + column]);
+                }
+            }
+        }
+        for (int row = n; row < oldRows; row++) {
+            for (int column = 0; column < T; column++) {
+                link(row * stride + column, NONE);
+            }
+        }
+        if (rename(rows, rowSymbols, nonTerminals)) {
+            rowIndex = new CodePointIndex(rowSymbols);
+        }
+    }
+
+    /**
+     * Brings the ids of symbols up to date with a new symbols list.
+     *
+     * @param ids id of every symbol.
+     * @param symbols symbols by id, modified to match updated.
+     * @param updated new symbols by id.
+     * @return false if no symbol changed.
      */
-    public void setProduction(String A, String b, Production p) {
-        HashMap<String, Production> hashA = this.get(A);
-        if (hashA == null) {
-            hashA = new HashMap();
-            this.put(A, hashA);
+    private static boolean rename(HashMap<String, Integer> ids, ArrayList<String> symbols, List<String> updated) {
+        boolean changed = symbols.size() != updated.size();
+        for (int id = 0; id < symbols.size(); id++) {
+            String symbol = symbols.get(id);
+            if ((id >= updated.size() || !symbol.equals(updated.get(id))) && Integer.valueOf(id).equals(ids.get(symbol))) {
+                ids.remove(symbol);
+                changed = true;
+            }
+        }
+        while (symbols.size() > updated.size()) {
+            symbols.remove(symbols.size() - 1);
+        }
+        for (int id = 0; id < updated.size(); id++) {
+            String symbol = updated.get(id);
+            if (id >= symbols.size()) {
+                symbols.add(symbol);
+                ids.put(symbol, id);
+            } else if (!symbol.equals(symbols.get(id))) {
+                symbols.set(id, symbol);
+                ids.put(symbol, id);
+            }
         }
-        hashA.put(b, p);
+        return changed;
     }
 
+    /**
+     * Gives every row room for more columns.
+     *
+     * @param columns columns room of every row.
+     */
+    private void relayout(int columns) {
+        int capacity = stride > 0 ? cells.length / stride : 0;
+        int[] wide = new int[capacity * columns];
+        Arrays.fill(wide, NONE);
+        for (int row = 0; row < capacity; row++) {
+            System.arraycopy(cells, row * stride, wide, row * columns, stride);
+        }
+        cells = wide;
+        stride = columns;
+    }
+
+    /**
+     * Links a production id to a cell, productions no cell links any more
+     * give their id back.
+     *
+     * @param cell cell index.
+     * @param id production id or NONE.
+     */
+    private void link(int cell, int id) {
+        int old = cells[cell];
+        if (old == id) {
+            return;
+        }
+        if (id != NONE) {
+            links[id]++;
+        }
+        cells[cell] = id;
+        if (old != NONE && --links[old] == 0) {
+            productionIds.remove(productions.get(old));
+            productions.set(old, null);
+            freeIds.push(old);
+        }
+    }
+
+    private int intern(Production p) {
+        Integer id = productionIds.get(p);
+        if (id == null) {
+            if (freeIds.isEmpty()) {
+                id = productions.size();
+                productions.add(p);
+                if (id >= links.length) {
+                    links = Arrays.copyOf(links, (id + 1) * 2);
+                }
+            } else {
+                id = freeIds.pop();
+                productions.set(id, p);
+            }
+            productionIds.put(p, id);
+        }
+        return id;
+    }
 }
@@ -0,0 +1,613 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import com.descentparser.trace.ParseListener;
+import com.descentparser.trace.ParseStep;
+import com.descentparser.trace.TraceCollector;
+import com.descentparser.trace.TraceLevel;
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Parse tables read straight from a memory mapped file. Every process which
+ * maps the same file shares one copy of it through the page cache, opening
+ * only checks the header and the sections bounds, so it costs the same for
+ * any grammar size, and the parse loop reads MTable cells from the mapped
+ * region.
+ *
+ * The file is little endian 32 bits ints: a header with the sections
+ * offsets, the MTable cells, the head row and the reversed stack symbols of
+ * every production, the stack symbol of every code point of the grammar and
+ * the symbol and production texts, one char per int, which are only read by
+ * traces. PRIMERO, next and the lexer aren't kept. Stack symbols are encoded
+ * like in CompiledGrammar.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class MappedGrammar {
+
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x4C4C314D;
+
+    private static final int TERMINALS = 2;
+    private static final int NON_TERMINALS = 3;
+    private static final int PRODUCTIONS = 4;
+    private static final int START = 5;
+    private static final int END = 6;
+    private static final int CELLS = 7;
+    private static final int HEADS = 8;
+    private static final int ALPHA_INDEX = 9;
+    private static final int ALPHA_DATA = 10;
+    private static final int ASCII = 11;
+    private static final int WIDE_COUNT = 12;
+    private static final int WIDE_CODE_POINTS = 13;
+    private static final int WIDE_SYMBOLS = 14;
+    private static final int NAME_INDEX = 15;
+    private static final int NAME_DATA = 16;
+    private static final int TEXT_INDEX = 17;
+    private static final int TEXT_DATA = 18;
+    private static final int LENGTH = 19;
+    private static final int HEADER = 20;
+    private static final int ASCII_SIZE = 128;
+
+    private final IntBuffer table;
+    private final int terminals;
+    private final int nonTerminals;
+    private final int productions;
+    private final int start;
+    private final int end;
+    private final int cells;
+    private final int heads;
+    private final int alphaIndex;
+    private final int alphaData;
+    private final int ascii;
+    private final int wideCount;
+    private final int wideCodePoints;
+    private final int wideSymbols;
+    private final int nameIndex;
+    private final int nameData;
+    private final int textIndex;
+    private final int textData;
+    private volatile CellProfile profile;
+
+    private MappedGrammar(IntBuffer table) throws StreamCorruptedException {
+        this.table = table;
+        if (table.limit() < HEADER || table.get(0) != MAGIC) {
+            throw new StreamCorruptedException("Not a mapped grammar.");
+        }
+        if (table.get(1) != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported format version " + table.get(1) + ".");
+        }
+        if (table.get(LENGTH) != table.limit()) {
+            throw new StreamCorruptedException("Mapped grammar is truncated.");
+        }
+        long T = table.get(TERMINALS);
+        long N = table.get(NON_TERMINALS);
+        long P = table.get(PRODUCTIONS);
+        long wide = table.get(WIDE_COUNT);
+        if (T < 0 || N < 0 || P < 0 || wide < 0) {
+            throw new StreamCorruptedException("Negative section size.");
+        }
+        if (table.get(CELLS) != HEADER) {
+            throw new StreamCorruptedException("Section " + CELLS + " out of range.");
+        }
+        checkSection(CELLS, HEADS, N * T);
+        checkSection(HEADS, ALPHA_INDEX, P);
+        checkSection(ALPHA_INDEX, ALPHA_DATA, P + 1);
+        checkSection(ALPHA_DATA, ASCII, dataLength(ALPHA_INDEX, P));
+        checkSection(ASCII, WIDE_CODE_POINTS, ASCII_SIZE);
+        checkSection(WIDE_CODE_POINTS, WIDE_SYMBOLS, wide);
+        checkSection(WIDE_SYMBOLS, NAME_INDEX, wide);
+        checkSection(NAME_INDEX, NAME_DATA, T + N + 1);
+        checkSection(NAME_DATA, TEXT_INDEX, dataLength(NAME_INDEX, T + N));
+        checkSection(TEXT_INDEX, TEXT_DATA, P + 1);
+        checkSection(TEXT_DATA, LENGTH, dataLength(TEXT_INDEX, P));
+
+        int start = table.get(START);
+        int end = table.get(END);
+        if (start != MTable.NONE && (start < T || start >= T + N)) {
+            throw new StreamCorruptedException("Start symbol " + start + " out of range.");
+        }
+        if (end < 0 || end >= T) {
+            throw new StreamCorruptedException("End symbol " + end + " out of range.");
+        }
+
+        terminals = table.get(TERMINALS);
+        nonTerminals = table.get(NON_TERMINALS);
+        productions = table.get(PRODUCTIONS);
+        this.start = start;
+        this.end = end;
+        cells = table.get(CELLS);
+        heads = table.get(HEADS);
+        alphaIndex = table.get(ALPHA_INDEX);
+        alphaData = table.get(ALPHA_DATA);
+        ascii = table.get(ASCII);
+        wideCount = table.get(WIDE_COUNT);
+        wideCodePoints = table.get(WIDE_CODE_POINTS);
+        wideSymbols = table.get(WIDE_SYMBOLS);
+        nameIndex = table.get(NAME_INDEX);
+        nameData = table.get(NAME_DATA);
+        textIndex = table.get(TEXT_INDEX);
+        textData = table.get(TEXT_DATA);
+    }
+
+    /**
+     * Checks that a section starts where the previous one ended and that
+     * its size fits before the next one, LENGTH for the last section.
+     *
+     * @param section header slot of the section offset.
+     * @param next header slot of the next section offset.
+     * @param size section size in ints.
+     * @throws StreamCorruptedException if the section overlaps the next
+     * one, leaves a gap or ends past the file.
+     */
+    private void checkSection(int section, int next, long size) throws StreamCorruptedException {
+        if (size < 0 || table.get(section) + size != table.get(next) || table.get(next) > table.limit()) {
+            throw new StreamCorruptedException("Section " + section + " out of range.");
+        }
+    }
+
+    /**
+     * Reads the data length of a texts or alpha section from the last entry
+     * of its index, the index is already checked to be in range.
+     *
+     * @param index header slot of the index offset.
+     * @param count entries before the last one.
+     * @return data length, negative if the first entry isn't 0.
+     */
+    private long dataLength(int index, long count) {
+        int offset = table.get(index);
+        return table.get(offset) != 0 ? -1 : table.get((int) (offset + count));
+    }
+
+    /**
+     * Maps a table file written by write, the file can't be modified while
+     * it is mapped.
+     *
+     * @param file table file.
+     * @return mapped grammar.
+     * @throws IOException if the file can't be mapped or isn't a table file
+     * of FORMAT_VERSION.
+     */
+    public static MappedGrammar open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new StreamCorruptedException("Mapped grammar is too large.");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappedGrammar(buffer.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer());
+        }
+    }
+
+    /**
+     * Writes the table file of a grammar through a temporary file, so
+     * processes which map it never see it half written.
+     *
+     * @param grammar compiled grammar.
+     * @param file table file.
+     * @throws IOException if writing fails.
+     */
+    public static void write(CompiledGrammar grammar, File file) throws IOException {
+        int T = grammar.getTerminalCount();
+        int N = grammar.getNonTerminalCount();
+        int P = grammar.getProductionCount();
+
+        TreeMap<Integer, Integer> wide = new TreeMap();
+        for (int symbol = 0; symbol < T + N; symbol++) {
+            String name = symbol < T ? grammar.getTerminal(symbol) : grammar.getNonTerminal(symbol - T);
+            if (name.codePointCount(0, name.length()) == 1 && name.codePointAt(0) >= ASCII_SIZE) {
+                wide.put(name.codePointAt(0), grammar.inputSymbol(name.codePointAt(0)));
+            }
+        }
+
+        int alphaLength = 0;
+        int nameLength = 0;
+        int textLength = 0;
+        for (int id = 0; id < P; id++) {
+            alphaLength += grammar.getReversedAlpha(id).length;
+            textLength += grammar.getProductionAlpha(id).length();
+        }
+        for (int symbol = 0; symbol < T + N; symbol++) {
+            nameLength += (symbol < T ? grammar.getTerminal(symbol) : grammar.getNonTerminal(symbol - T)).length();
+        }
+
+        int[] header = new int[HEADER];
+        header[0] = MAGIC;
+        header[1] = FORMAT_VERSION;
+        header[TERMINALS] = T;
+        header[NON_TERMINALS] = N;
+        header[PRODUCTIONS] = P;
+        header[START] = grammar.getStart();
+        header[END] = grammar.getEnd();
+        header[CELLS] = HEADER;
+        header[HEADS] = header[CELLS] + N * T;
+        header[ALPHA_INDEX] = header[HEADS] + P;
+        header[ALPHA_DATA] = header[ALPHA_INDEX] + P + 1;
+        header[ASCII] = header[ALPHA_DATA] + alphaLength;
+        header[WIDE_COUNT] = wide.size();
+        header[WIDE_CODE_POINTS] = header[ASCII] + ASCII_SIZE;
+        header[WIDE_SYMBOLS] = header[WIDE_CODE_POINTS] + wide.size();
+        header[NAME_INDEX] = header[WIDE_SYMBOLS] + wide.size();
+        header[NAME_DATA] = header[NAME_INDEX] + T + N + 1;
+        header[TEXT_INDEX] = header[NAME_DATA] + nameLength;
+        header[TEXT_DATA] = header[TEXT_INDEX] + P + 1;
+        header[LENGTH] = header[TEXT_DATA] + textLength;
+
+        ByteBuffer bytes = ByteBuffer.allocate(header[LENGTH] * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer out = bytes.asIntBuffer();
+        out.put(header);
+        for (int row = 0; row < N; row++) {
+            for (int column = 0; column < T; column++) {
+                out.put(grammar.getProductionId(row, column));
+            }
+        }
+        for (int id = 0; id < P; id++) {
+            out.put(grammar.getProductionHead(id));
+        }
+        int offset = 0;
+        for (int id = 0; id < P; id++) {
+            out.put(offset);
+            offset += grammar.getReversedAlpha(id).length;
+        }
+        out.put(offset);
+        for (int id = 0; id < P; id++) {
+            out.put(grammar.getReversedAlpha(id));
+        }
+        for (int codePoint = 0; codePoint < ASCII_SIZE; codePoint++) {
+            out.put(grammar.inputSymbol(codePoint));
+        }
+        wide.keySet().forEach(out::put);
+        wide.values().forEach(out::put);
+
+        String[] names = new String[T + N];
+        for (int symbol = 0; symbol < names.length; symbol++) {
+            names[symbol] = symbol < T ? grammar.getTerminal(symbol) : grammar.getNonTerminal(symbol - T);
+        }
+        putTexts(out, names);
+        String[] texts = new String[P];
+        for (int id = 0; id < P; id++) {
+            texts[id] = grammar.getProductionAlpha(id);
+        }
+        putTexts(out, texts);
+
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = Files.createTempFile(target.getParent(), "grammar", ".tmp");
+        try {
+            Files.write(temp, bytes.array());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Puts the start of every text, the end of the last one and the chars of
+     * all of them.
+     */
+    private static void putTexts(IntBuffer out, String[] texts) {
+        int offset = 0;
+        for (String text : texts) {
+            out.put(offset);
+            offset += text.length();
+        }
+        out.put(offset);
+        for (String text : texts) {
+            for (int i = 0; i < text.length(); i++) {
+                out.put(text.charAt(i));
+            }
+        }
+    }
+
+    private String text(int index, int data, int i) {
+        int from = table.get(index + i);
+        int to = table.get(index + i + 1);
+        char[] chars = new char[to - from];
+        for (int j = 0; j < chars.length; j++) {
+            chars[j] = (char) table.get(data + from + j);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Attaches a profile which counts the MTable cells parses expand, or
+     * detaches it. Parses already running keep the previous one.
+     *
+     * @param profile profile built for this grammar, null to stop counting.
+     * @throws IllegalArgumentException if profile was built for another
+     * grammar.
+     */
+    public void setProfile(CellProfile profile) throws IllegalArgumentException {
+        if (profile != null) {
+            profile.check(this);
+        }
+        this.profile = profile;
+    }
+
+    /**
+     * Returns the attached cell profile.
+     *
+     * @return profile, null if cells aren't counted.
+     */
+    public CellProfile getProfile() {
+        return profile;
+    }
+
+    public int getNonTerminalCount() {
+        return nonTerminals;
+    }
+
+    public int getTerminalCount() {
+        return terminals;
+    }
+
+    public int getProductionCount() {
+        return productions;
+    }
+
+    /**
+     * Get the non terminal of a row.
+     *
+     * @param row row id.
+     * @return non terminal identifier.
+     */
+    public String getNonTerminal(int row) {
+        return text(nameIndex, nameData, terminals + row);
+    }
+
+    /**
+     * Get the terminal of a column.
+     *
+     * @param column column id.
+     * @return terminal identifier.
+     */
+    public String getTerminal(int column) {
+        return text(nameIndex, nameData, column);
+    }
+
+    /**
+     * Get the body of a production.
+     *
+     * @param id production id.
+     * @return production alpha.
+     */
+    public String getProductionAlpha(int id) {
+        return text(textIndex, textData, id);
+    }
+
+    /**
+     * Get the id of the production linked to a row and a column.
+     *
+     * @param row row id.
+     * @param column column id.
+     * @return production id or MTable.NONE if the cell is empty.
+     */
+    public int getProductionId(int row, int column) {
+        if (row < 0 || row >= nonTerminals || column < 0 || column >= terminals) {
+            return MTable.NONE;
+        }
+        return table.get(cells + row * terminals + column);
+    }
+
+    /**
+     * Recognizes str and collects every step of the parse.
+     *
+     * @param str string to recognize.
+     * @return {stack, input, production} rows if str is recognized, null
+     * otherwise.
+     */
+    public ArrayList<String[]> match(String str) {
+        TraceCollector trace = new TraceCollector();
+        return parse(str, trace) ? trace.getRows() : null;
+    }
+
+    /**
+     * Determines whether the grammar recognizes str.
+     *
+     * @param str string to recognize.
+     * @return true if str is recognized.
+     */
+    public boolean recognize(CharSequence str) {
+        return parse(new ParseInput.Chars(str), null, null);
+    }
+
+    /**
+     * Determines whether the grammar recognizes str reusing the stack and
+     * cursor of context.
+     *
+     * @param str string to recognize.
+     * @param context parse context owned by the calling thread.
+     * @return true if str is recognized.
+     */
+    public boolean recognize(CharSequence str, ParseContext context) {
+        return parse(context.chars.reset(str), null, context);
+    }
+
+    /**
+     * Recognizes str reporting its steps to listener.
+     *
+     * @param str string to recognize.
+     * @param listener parse listener, may be null.
+     * @return true if str is recognized.
+     */
+    public boolean parse(CharSequence str, ParseListener listener) {
+        return parse(new ParseInput.Chars(str), listener, null);
+    }
+
+    /**
+     * Runs the MTable loop of CompiledGrammar over the mapped tables.
+     *
+     * @param input input to recognize.
+     * @param listener parse listener, may be null.
+     * @param context context whose stack is reused, may be null.
+     * @return true if the input is recognized.
+     */
+    boolean parse(ParseInput input, ParseListener listener, ParseContext context) {
+        ParseEvent event = ParseEvent.start();
+        CellProfile profile = this.profile;
+        long[] heat = profile != null ? profile.sample() : null;
+        if (start == MTable.NONE) {
+            return end(listener, event, input, 0, false);
+        }
+
+        TraceLevel level = listener != null ? listener.getLevel() : TraceLevel.None;
+        boolean productions = level != TraceLevel.None;
+
+        int[] stack = context != null ? context.stack : new int[32];
+        int top = 0;
+        stack[top++] = end;
+        stack[top++] = start;
+
+        input.start();
+        int a = inputSymbol(input.codePoint);
+        Snapshot snapshot = level == TraceLevel.Snapshots ? new Snapshot(input) : null;
+
+        long steps = 0;
+        while (true) {
+            steps++;
+            if (snapshot != null) {
+                snapshot.stack = stack;
+                snapshot.top = top;
+                listener.step(snapshot);
+            }
+
+            if (a != CompiledGrammar.EPSILON) {
+                int X = stack[--top];
+
+                if (X == end) {
+                    return end(listener, event, input, steps, X == a);
+                } else if (X == a) {
+                    input.advance();
+                    a = inputSymbol(input.codePoint);
+                } else if (X != CompiledGrammar.EPSILON) {
+                    int id = X < terminals ? MTable.NONE : getProductionId(X - terminals, a);
+
+                    if (id == MTable.NONE) {
+                        return end(listener, event, input, steps, false);
+                    }
+
+                    if (heat != null) {
+                        heat[(X - terminals) * terminals + a]++;
+                    }
+
+                    if (productions) {
+                        listener.production(getNonTerminal(table.get(heads + id)), getProductionAlpha(id));
+                    }
+
+                    int from = alphaData + table.get(alphaIndex + id);
+                    int length = alphaData + table.get(alphaIndex + id + 1) - from;
+                    if (top + length > stack.length) {
+                        stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + length));
+                        if (context != null) {
+                            context.stack = stack;
+                        }
+                    }
+                    for (int i = 0; i < length; i++) {
+                        stack[top++] = table.get(from + i);
+                    }
+                }
+            } else {
+                input.advance();
+                a = inputSymbol(input.codePoint);
+            }
+        }
+    }
+
+    private static boolean end(ParseListener listener, ParseEvent event, ParseInput input, long steps, boolean accepted) {
+        if (listener != null) {
+            listener.end(accepted);
+        }
+        if (event != null) {
+            event.finish(input, steps, accepted);
+        }
+        return accepted;
+    }
+
+    /**
+     * Translates an input code point into a parse stack symbol through the
+     * mapped code point sections.
+     *
+     * @param codePoint input code point, -1 at the end of the input.
+     * @return stack symbol, MTable.NONE if codePoint isn't a grammar symbol.
+     */
+    private int inputSymbol(int codePoint) {
+        if (codePoint < 0) {
+            return end;
+        } else if (codePoint < ASCII_SIZE) {
+            return table.get(ascii + codePoint);
+        }
+
+        int lo = 0;
+        int hi = wideCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int value = table.get(wideCodePoints + mid);
+            if (value < codePoint) {
+                lo = mid + 1;
+            } else if (value > codePoint) {
+                hi = mid - 1;
+            } else {
+                return table.get(wideSymbols + mid);
+            }
+        }
+        return MTable.NONE;
+    }
+
+    /**
+     * Parse step over the live parse stack, its texts are built on request.
+     */
+    private class Snapshot implements ParseStep {
+
+        private final ParseInput input;
+        private int[] stack;
+        private int top;
+
+        Snapshot(ParseInput input) {
+            this.input = input;
+        }
+
+        @Override
+        public String getStack() {
+            StringBuilder builder = new StringBuilder("[");
+            for (int j = 0; j < top; j++) {
+                if (j > 0) {
+                    builder.append(", ");
+                }
+                int symbol = stack[j];
+                builder.append(symbol == CompiledGrammar.EPSILON ? "&" : text(nameIndex, nameData, symbol));
+            }
+            return builder.append(']').toString();
+        }
+
+        @Override
+        public String getInput() {
+            return input.remaining();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+/**
+ * Reusable parse state: the parse stack and the input cursor. A context must
+ * be used by only one thread at a time.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class ParseContext {
+
+    public static final int DEFAULT_STACK_SIZE = 256;
+
+    int[] stack;
+    final ParseInput.Chars chars;
+
+    /**
+     * ParseContext builder with the default stack size.
+     */
+    public ParseContext() {
+        this(DEFAULT_STACK_SIZE);
+    }
+
+    /**
+     * ParseContext builder.
+     *
+     * @param stackSize initial parse stack size, it grows if needed.
+     */
+    public ParseContext(int stackSize) {
+        stack = new int[Math.max(stackSize, 2)];
+        chars = new ParseInput.Chars("");
+    }
+
+    /**
+     * Returns the current parse stack size.
+     *
+     * @return stack size.
+     */
+    public int getStackSize() {
+        return stack.length;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one run of the MTable loop. It is disabled by
+ * default, enable it with a recording setting like
+ * "com.descentparser.Parse#enabled=true", parses don't build it otherwise.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+@Name("com.descentparser.Parse")
+@Label("Parse")
+@Category("Descent Parser")
+@Description("Recognition of one input by a compiled grammar.")
+@Enabled(false)
+@StackTrace(false)
+public final class ParseEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(ParseEvent.class);
+
+    @Label("Input Length")
+    @Description("Chars or tokens of the input, -1 for streams.")
+    long inputLength;
+
+    @Label("Consumed")
+    @Description("Chars or tokens read before the verdict.")
+    long consumed;
+
+    @Label("Steps")
+    @Description("Iterations of the MTable loop.")
+    long steps;
+
+    @Label("Accepted")
+    boolean accepted;
+
+    /**
+     * Begins an event if recording asks for it.
+     *
+     * @return begun event, null if the event is disabled.
+     */
+    static ParseEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        ParseEvent event = new ParseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends and commits the event.
+     *
+     * @param input parsed input.
+     * @param steps iterations of the MTable loop.
+     * @param accepted verdict.
+     */
+    void finish(ParseInput input, long steps, boolean accepted) {
+        end();
+        if (shouldCommit()) {
+            inputLength = input.length();
+            consumed = input.offset;
+            this.steps = steps;
+            this.accepted = accepted;
+            commit();
+        }
+    }
+}
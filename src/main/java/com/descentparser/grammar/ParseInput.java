@@ -0,0 +1,372 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import com.descentparser.lexer.Lexer;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
+/**
+ * Code point cursor the parse loop pulls its input from.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+abstract class ParseInput {
+
+    /**
+     * Chars consumed before the current code point.
+     */
+    long offset;
+
+    /**
+     * Current code point, -1 at the end of the input.
+     */
+    int codePoint;
+
+    /**
+     * Reads the code point at offset.
+     *
+     * @return read code point, -1 at the end of the input.
+     */
+    abstract int read();
+
+    /**
+     * Formats the input still not consumed, "$" included when the end is
+     * known.
+     *
+     * @return input text like "[i, +, i, $]".
+     */
+    abstract String remaining();
+
+    /**
+     * Returns where the current item ends.
+     *
+     * @return offset after the current item.
+     */
+    long itemEnd() {
+        return offset + Character.charCount(codePoint);
+    }
+
+    /**
+     * Returns the size of the whole input in offset units.
+     *
+     * @return chars or tokens, -1 if it isn't known.
+     */
+    long length() {
+        return -1;
+    }
+
+    /**
+     * Reads the first code point, must be called before parsing.
+     */
+    final void start() {
+        codePoint = read();
+    }
+
+    /**
+     * Consumes the current code point.
+     */
+    void advance() {
+        offset += Character.charCount(codePoint);
+        codePoint = read();
+    }
+
+    /**
+     * Input over a materialized char sequence.
+     */
+    static final class Chars extends ParseInput {
+
+        private CharSequence str;
+
+        Chars(CharSequence str) {
+            this.str = str;
+        }
+
+        /**
+         * Moves the cursor to the beginning of another string.
+         *
+         * @param str new input.
+         * @return this cursor.
+         */
+        Chars reset(CharSequence str) {
+            this.str = str;
+            offset = 0;
+            return this;
+        }
+
+        @Override
+        long length() {
+            return str.length();
+        }
+
+        @Override
+        int read() {
+            return offset < str.length() ? Character.codePointAt(str, (int) offset) : -1;
+        }
+
+        @Override
+        String remaining() {
+            StringBuilder builder = new StringBuilder("[");
+            int j = (int) offset;
+            while (j < str.length()) {
+                int c = Character.codePointAt(str, j);
+                builder.appendCodePoint(c).append(", ");
+                j += Character.charCount(c);
+            }
+            return builder.append("$]").toString();
+        }
+    }
+
+    /**
+     * Input of terminal column ids instead of code points, so terminals of
+     * several chars are one item.
+     */
+    abstract static class TokenInput extends ParseInput {
+
+        /**
+         * Token of text which isn't a terminal of the grammar.
+         */
+        static final int INVALID = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Input of tokens already split by the caller. Offsets count tokens.
+     */
+    static final class Tokens extends TokenInput {
+
+        private final int[] tokens;
+        private final int length;
+        private final CompiledGrammar grammar;
+
+        Tokens(int[] tokens, int length, CompiledGrammar grammar) {
+            this.tokens = tokens;
+            this.length = length;
+            this.grammar = grammar;
+        }
+
+        @Override
+        int read() {
+            return offset < length ? tokens[(int) offset] : -1;
+        }
+
+        @Override
+        void advance() {
+            offset++;
+            codePoint = read();
+        }
+
+        @Override
+        long itemEnd() {
+            return offset + 1;
+        }
+
+        @Override
+        long length() {
+            return length;
+        }
+
+        @Override
+        String remaining() {
+            StringBuilder builder = new StringBuilder("[");
+            for (int j = (int) offset; j < length; j++) {
+                int token = tokens[j];
+                builder.append(token >= 0 && token < grammar.getTerminalCount() ? grammar.getTerminal(token) : "?").append(", ");
+            }
+            return builder.append("$]").toString();
+        }
+    }
+
+    /**
+     * Input of tokens pulled from a lexer scanner while parsing. Offsets are
+     * the char where the current token starts.
+     */
+    static final class Lexed extends TokenInput {
+
+        private final Lexer lexer;
+        private final int[] columns;
+        private final CharSequence str;
+        private final Lexer.Scanner scanner;
+
+        /**
+         * Lexed builder.
+         *
+         * @param lexer lexer which splits str.
+         * @param columns terminal column of every lexer rule, INVALID if the
+         * rule isn't a terminal of the grammar.
+         * @param str input to recognize.
+         */
+        Lexed(Lexer lexer, int[] columns, CharSequence str) {
+            this.lexer = lexer;
+            this.columns = columns;
+            this.str = str;
+            this.scanner = lexer.scanner(str);
+        }
+
+        @Override
+        int read() {
+            int rule = scanner.next();
+            offset = scanner.getStart();
+            return rule == Lexer.END ? -1 : rule == Lexer.ERROR ? INVALID : columns[rule];
+        }
+
+        @Override
+        void advance() {
+            codePoint = read();
+        }
+
+        @Override
+        long itemEnd() {
+            return scanner.getEnd();
+        }
+
+        @Override
+        long length() {
+            return str.length();
+        }
+
+        @Override
+        String remaining() {
+            StringBuilder builder = new StringBuilder("[");
+            Lexer.Scanner rest = lexer.scanner(str, (int) offset);
+            for (int rule = rest.next(); rule != Lexer.END; rule = rest.next()) {
+                builder.append(rule == Lexer.ERROR ? "?" : lexer.getTerminal(rule)).append(", ");
+            }
+            return builder.append("$]").toString();
+        }
+    }
+
+    /**
+     * Input of tokens pulled from a lexer scanner over a reader, only the
+     * chars of the pending token are held. Offsets are the char where the
+     * current token starts.
+     */
+    static final class LexedStream extends TokenInput {
+
+        private final Lexer.StreamScanner scanner;
+        private final int[] columns;
+        private final CompiledGrammar grammar;
+
+        /**
+         * LexedStream builder.
+         *
+         * @param scanner scanner over the input.
+         * @param columns terminal column of every lexer rule, INVALID if the
+         * rule isn't a terminal of the grammar.
+         * @param grammar grammar whose terminals are formatted.
+         */
+        LexedStream(Lexer.StreamScanner scanner, int[] columns, CompiledGrammar grammar) {
+            this.scanner = scanner;
+            this.columns = columns;
+            this.grammar = grammar;
+        }
+
+        @Override
+        int read() {
+            int rule = scanner.next();
+            offset = scanner.getStart();
+            return rule == Lexer.END ? -1 : rule == Lexer.ERROR ? INVALID : columns[rule];
+        }
+
+        @Override
+        void advance() {
+            codePoint = read();
+        }
+
+        @Override
+        long itemEnd() {
+            return scanner.getEnd();
+        }
+
+        /**
+         * Only the current token is formatted, the rest is shown as "...".
+         */
+        @Override
+        String remaining() {
+            StringBuilder builder = new StringBuilder("[");
+            if (codePoint < 0) {
+                return builder.append("$]").toString();
+            }
+            builder.append(codePoint != INVALID ? grammar.getTerminal(codePoint) : "?").append(", ");
+            return builder.append("...]").toString();
+        }
+    }
+
+    /**
+     * Input pulled from a reader through a fixed size buffer.
+     */
+    static final class Stream extends ParseInput {
+
+        private final Reader reader;
+        private final char[] buffer;
+        private int position;
+        private int limit;
+
+        Stream(Reader reader, int bufferSize) {
+            this.reader = reader;
+            this.buffer = new char[Math.max(bufferSize, 2)];
+        }
+
+        @Override
+        int read() {
+            if (position >= limit && !fill()) {
+                return -1;
+            }
+
+            char high = buffer[position++];
+            if (Character.isHighSurrogate(high) && (position < limit || fill())
+                    && Character.isLowSurrogate(buffer[position])) {
+                return Character.toCodePoint(high, buffer[position++]);
+            }
+            return high;
+        }
+
+        /**
+         * Refills the buffer from the reader.
+         *
+         * @return false at the end of the input.
+         */
+        private boolean fill() {
+            try {
+                int n;
+                do {
+                    n = reader.read(buffer, 0, buffer.length);
+                } while (n == 0);
+                position = 0;
+                limit = Math.max(n, 0);
+                return n > 0;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Only the buffered input is formatted, the rest is shown as "...".
+         */
+        @Override
+        String remaining() {
+            StringBuilder builder = new StringBuilder("[");
+            if (codePoint < 0) {
+                return builder.append("$]").toString();
+            }
+            builder.appendCodePoint(codePoint).append(", ");
+            for (int j = position; j < limit; j++) {
+                builder.append(buffer[j]).append(", ");
+            }
+            return builder.append("...]").toString();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+/**
+ * Verdict of a parse and the input offset where it finished.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class ParseResult {
+
+    private final boolean accepted;
+    private final long offset;
+
+    /**
+     * ParseResult builder.
+     *
+     * @param accepted true if the input was recognized.
+     * @param offset chars consumed when the parse finished.
+     */
+    public ParseResult(boolean accepted, long offset) {
+        this.accepted = accepted;
+        this.offset = offset;
+    }
+
+    /**
+     * Determines whether the input was recognized.
+     *
+     * @return true if the input was recognized.
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the chars consumed when the parse finished, on a rejection it
+     * is the offset of the char which couldn't be matched.
+     *
+     * @return offset in chars.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public String toString() {
+        return (accepted ? "accepted" : "rejected") + " at " + offset;
+    }
+}
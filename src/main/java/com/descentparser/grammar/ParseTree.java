@@ -0,0 +1,428 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parse tree kept in parallel int arrays, one slot per node: stack symbol,
+ * production, parent, first child, next sibling and the input span. Nodes
+ * are numbered in the order the parse loop creates them, so parents come
+ * before their children and the root is 0.
+ *
+ * A tree is reused by every parse it is given to, arrays only grow, so
+ * after warm up parsing into it allocates nothing but the lexer tokens.
+ * Node objects are only built on request with getNode and stay valid
+ * until the next parse.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public final class ParseTree {
+
+    private CompiledGrammar grammar;
+    private int size;
+    private int generation;
+    private boolean complete;
+    private int[] symbols;
+    private int[] productions;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] starts;
+    private int[] ends;
+    final ParseContext context;
+
+    /**
+     * Node of the parse stack under every parse stack symbol, -1 for the
+     * end marker and epsilon.
+     */
+    int[] stack;
+
+    /**
+     * ParseTree builder with room for 64 nodes.
+     */
+    public ParseTree() {
+        this(64);
+    }
+
+    /**
+     * ParseTree builder.
+     *
+     * @param capacity initial nodes count, arrays grow if needed.
+     */
+    public ParseTree(int capacity) {
+        capacity = Math.max(capacity, 1);
+        symbols = new int[capacity];
+        productions = new int[capacity];
+        parents = new int[capacity];
+        firstChildren = new int[capacity];
+        nextSiblings = new int[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        context = new ParseContext();
+        stack = new int[context.stack.length];
+    }
+
+    /**
+     * Empties the tree and adds the root.
+     *
+     * @param grammar grammar of the parse.
+     * @param start stack symbol of the start non terminal, MTable.NONE
+     * leaves the tree empty.
+     */
+    void reset(CompiledGrammar grammar, int start) {
+        this.grammar = grammar;
+        size = 0;
+        generation++;
+        complete = false;
+        if (start != MTable.NONE) {
+            stack[0] = -1;
+            stack[1] = add(start, -1, -1);
+        }
+    }
+
+    private int add(int symbol, int parent, int previous) {
+        if (size == symbols.length) {
+            int capacity = size * 2;
+            symbols = Arrays.copyOf(symbols, capacity);
+            productions = Arrays.copyOf(productions, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        int node = size++;
+        symbols[node] = symbol;
+        productions[node] = MTable.NONE;
+        parents[node] = parent;
+        firstChildren[node] = -1;
+        nextSiblings[node] = -1;
+        starts[node] = -1;
+        ends[node] = -1;
+        if (previous >= 0) {
+            nextSiblings[previous] = node;
+        } else if (parent >= 0) {
+            firstChildren[parent] = node;
+        }
+        return node;
+    }
+
+    /**
+     * Records the expansion of node and adds its children, their nodes are
+     * placed in stack next to the symbols pushed by the parse loop.
+     *
+     * @param node expanded node.
+     * @param id applied production.
+     * @param offset input offset of the lookahead.
+     * @param alpha reversed stack symbols of the production.
+     * @param top parse stack top where alpha is pushed.
+     */
+    void expand(int node, int id, long offset, int[] alpha, int top) {
+        productions[node] = id;
+        starts[node] = (int) offset;
+        if (top + alpha.length > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + alpha.length));
+        }
+
+        int previous = -1;
+        for (int i = alpha.length - 1; i >= 0; i--) {
+            int child = alpha[i] != CompiledGrammar.EPSILON ? add(alpha[i], node, previous) : -1;
+            stack[top + i] = child;
+            if (child >= 0) {
+                previous = child;
+            }
+        }
+    }
+
+    /**
+     * Records the input span of a matched symbol.
+     */
+    void match(int node, long start, long end) {
+        starts[node] = (int) start;
+        ends[node] = (int) end;
+    }
+
+    /**
+     * Works out the spans of non terminals from their children, it must
+     * run once the parse loop is over.
+     *
+     * @param accepted verdict of the parse.
+     */
+    void finish(boolean accepted) {
+        complete = accepted;
+        for (int node = size - 1; node >= 0; node--) {
+            if (starts[node] < 0) {
+                continue;
+            }
+            if (ends[node] < starts[node]) {
+                ends[node] = starts[node];
+            }
+            int parent = parents[node];
+            if (parent >= 0 && ends[parent] < ends[node]) {
+                ends[parent] = ends[node];
+            }
+        }
+    }
+
+    /**
+     * Determines whether the last parse accepted its input. Trees of
+     * rejected inputs keep the nodes built before the error, unreached
+     * ones have no span.
+     *
+     * @return true if the tree derives the whole input.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get the grammar of the last parse.
+     *
+     * @return compiled grammar, null if the tree wasn't used yet.
+     */
+    public CompiledGrammar getGrammar() {
+        return grammar;
+    }
+
+    /**
+     * Returns the nodes count.
+     *
+     * @return nodes count, 0 if the grammar has no non terminals.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the parse stack symbol of a node.
+     *
+     * @param node node index.
+     * @return terminal column or non terminal row plus the columns count.
+     */
+    public int getSymbol(int node) {
+        return symbols[check(node)];
+    }
+
+    /**
+     * Get the grammar symbol of a node.
+     *
+     * @param node node index.
+     * @return symbol identifier.
+     */
+    public String getSymbolName(int node) {
+        return grammar.symbolName(symbols[check(node)]);
+    }
+
+    /**
+     * Determines whether a node is a leaf matched against the input.
+     *
+     * @param node node index.
+     * @return true if its symbol is a terminal.
+     */
+    public boolean isTerminal(int node) {
+        return symbols[check(node)] < grammar.getTerminalCount();
+    }
+
+    /**
+     * Get the production applied to a node.
+     *
+     * @param node node index.
+     * @return production id, MTable.NONE for terminals and unreached nodes.
+     */
+    public int getProduction(int node) {
+        return productions[check(node)];
+    }
+
+    public int getParent(int node) {
+        return parents[check(node)];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[check(node)];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[check(node)];
+    }
+
+    /**
+     * Get where the input of a node starts.
+     *
+     * @param node node index.
+     * @return chars or tokens offset, -1 if the parse didn't reach it.
+     */
+    public int getStart(int node) {
+        return starts[check(node)];
+    }
+
+    /**
+     * Get where the input of a node ends, epsilon derivations are empty.
+     *
+     * @param node node index.
+     * @return chars or tokens offset, exclusive, -1 if the parse didn't
+     * reach it.
+     */
+    public int getEnd(int node) {
+        return ends[check(node)];
+    }
+
+    private int check(int node) {
+        if (node < 0 || node >= size) {
+            throw new IndexOutOfBoundsException("Node " + node + " of " + size + ".");
+        }
+        return node;
+    }
+
+    /**
+     * Builds an object view of a node, its children are built when asked.
+     *
+     * @param node node index.
+     * @return node view, valid until the next parse.
+     */
+    public Node getNode(int node) {
+        return new Node(check(node));
+    }
+
+    /**
+     * Builds an object view of the root.
+     *
+     * @return root view, null if the tree is empty.
+     */
+    public Node getRoot() {
+        return size > 0 ? new Node(0) : null;
+    }
+
+    /**
+     * Formats the tree like "E(T(F(i) Y) X)", epsilon derivations have no
+     * parentheses.
+     *
+     * @return bracketed tree.
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        if (size > 0) {
+            append(builder, 0);
+        }
+        return builder.toString();
+    }
+
+    private void append(StringBuilder builder, int node) {
+        builder.append(grammar.symbolName(symbols[node]));
+        int child = firstChildren[node];
+        if (child >= 0) {
+            builder.append('(');
+            for (; child >= 0; child = nextSiblings[child]) {
+                append(builder, child);
+                if (nextSiblings[child] >= 0) {
+                    builder.append(' ');
+                }
+            }
+            builder.append(')');
+        }
+    }
+
+    /**
+     * Object view of a tree node.
+     */
+    public final class Node {
+
+        private final int index;
+        private final int built;
+
+        private Node(int index) {
+            this.index = index;
+            this.built = generation;
+        }
+
+        private int index() {
+            if (built != generation) {
+                throw new IllegalStateException("Tree was reused by another parse.");
+            }
+            return index;
+        }
+
+        /**
+         * Get the node index in the tree arrays.
+         *
+         * @return node index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public String getSymbol() {
+            return getSymbolName(index());
+        }
+
+        public boolean isTerminal() {
+            return ParseTree.this.isTerminal(index());
+        }
+
+        /**
+         * Get the production applied to the node.
+         *
+         * @return production like "A->alpha", null for terminals.
+         */
+        public String getProduction() {
+            int id = productions[index()];
+            return id != MTable.NONE
+                    ? grammar.getNonTerminal(grammar.getProductionHead(id)) + "->" + grammar.getProductionAlpha(id)
+                    : null;
+        }
+
+        public int getStart() {
+            return starts[index()];
+        }
+
+        public int getEnd() {
+            return ends[index()];
+        }
+
+        /**
+         * Get the parent node.
+         *
+         * @return parent view, null for the root.
+         */
+        public Node getParent() {
+            int parent = parents[index()];
+            return parent >= 0 ? new Node(parent) : null;
+        }
+
+        /**
+         * Builds the views of the children.
+         *
+         * @return children in input order.
+         */
+        public List<Node> getChildren() {
+            ArrayList<Node> children = new ArrayList();
+            for (int child = firstChildren[index()]; child >= 0; child = nextSiblings[child]) {
+                children.add(new Node(child));
+            }
+            return children;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            append(builder, index());
+            return builder.toString();
+        }
+    }
+}
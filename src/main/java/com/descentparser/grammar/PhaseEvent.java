@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event of one step of Grammar.processGrammar, with the
+ * size of the grammar when the step ended. It is disabled by default,
+ * enable it with "com.descentparser.Phase#enabled=true".
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+@Name("com.descentparser.Phase")
+@Label("Grammar Phase")
+@Category("Descent Parser")
+@Description("One step of processing a grammar.")
+@Enabled(false)
+@StackTrace(false)
+public final class PhaseEvent extends Event {
+
+    private static final EventType TYPE = EventType.getEventType(PhaseEvent.class);
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Non Terminals")
+    int nonTerminals;
+
+    @Label("Terminals")
+    @Description("Terminal symbols, \"$\" included once known.")
+    int terminals;
+
+    @Label("Productions")
+    int productions;
+
+    @Label("Factoring Heads")
+    @Description("Non terminals added removing left factoring.")
+    int factoringHeads;
+
+    @Label("Recursion Heads")
+    @Description("Non terminals added removing left recursion.")
+    int recursionHeads;
+
+    @Label("Conflicts")
+    @Description("MTable cells claimed by more than one production.")
+    int conflicts;
+
+    /**
+     * Begins an event if recording asks for it.
+     *
+     * @return begun event, null if the event is disabled.
+     */
+    static PhaseEvent start() {
+        if (!TYPE.isEnabled()) {
+            return null;
+        }
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the event, fields must be set before commit.
+     *
+     * @param phase ended step.
+     * @return true if the event has to be committed.
+     */
+    boolean finish(Phase phase) {
+        end();
+        this.phase = phase.name();
+        return shouldCommit();
+    }
+}
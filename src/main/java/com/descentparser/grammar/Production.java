@@ -16,6 +16,7 @@
 package com.descentparser.grammar;
 
 import com.descentparser.tools.NullableStatus;
+import java.util.Arrays;
 
 /**
  *
@@ -24,11 +25,53 @@ import com.descentparser.tools.NullableStatus;
 public class Production {
     public NullableStatus nullableStatus;
     public final String alpha;
+    /**
+     * Symbol ids of alpha in the SymbolTable of its head, without '&'.
+     */
+    public final int[] symbols;
 
-    public Production(String alpha) {        
+    /**
+     * Production builder, alpha symbols are interned in a table of its own.
+     *
+     * @param alpha production body.
+     */
+    public Production(String alpha) {
+        this(alpha, new SymbolTable());
+    }
+
+    /**
+     * Production builder.
+     *
+     * @param alpha production body in any notation of SymbolTable.
+     * @param table table where alpha symbols are interned.
+     */
+    public Production(String alpha, SymbolTable table) {
         this.alpha = alpha;
+        this.symbols = table.parse(alpha);
         this.nullableStatus = NullableStatus.NotCalculated;
     }
+
+    /**
+     * Production builder, alpha is formated from symbols.
+     *
+     * @param symbols symbol ids without '&'.
+     * @param table table which holds the symbols.
+     */
+    public Production(int[] symbols, SymbolTable table) {
+        this.alpha = table.format(symbols);
+        this.symbols = symbols;
+        this.nullableStatus = NullableStatus.NotCalculated;
+    }
+
+    /**
+     * Determines whether this production derives the given symbols.
+     *
+     * @param symbols symbol ids.
+     * @return true if both have the same symbols.
+     */
+    public boolean hasSymbols(int[] symbols) {
+        return Arrays.equals(this.symbols, symbols);
+    }
     
     /**
      * Compares alpha and the provided String p and determines whether both produces the same content.
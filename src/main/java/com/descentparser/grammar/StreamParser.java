@@ -0,0 +1,129 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import com.descentparser.trace.ParseListener;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Recognizes inputs read incrementally, so they never have to be held in
+ * memory. Grammars with a lexer scan tokens from the same buffer, holding
+ * only the chars of the token being matched.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class StreamParser {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final CompiledGrammar grammar;
+    private final int bufferSize;
+
+    /**
+     * StreamParser builder with the default buffer size.
+     *
+     * @param grammar processed grammar.
+     */
+    public StreamParser(Grammar grammar) {
+        this(grammar.getCompiled(), DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * StreamParser builder with the default buffer size.
+     *
+     * @param grammar compiled grammar.
+     */
+    public StreamParser(CompiledGrammar grammar) {
+        this(grammar, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * StreamParser builder.
+     *
+     * @param grammar processed grammar.
+     * @param bufferSize chars read from the input at once.
+     */
+    public StreamParser(Grammar grammar, int bufferSize) {
+        this(grammar.getCompiled(), bufferSize);
+    }
+
+    /**
+     * StreamParser builder.
+     *
+     * @param grammar compiled grammar.
+     * @param bufferSize chars read from the input at once.
+     */
+    public StreamParser(CompiledGrammar grammar, int bufferSize) {
+        if (grammar == null) {
+            throw new NullPointerException("Grammar isn't processed.");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        this.grammar = grammar;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Recognizes the chars of a reader, the reader isn't closed.
+     *
+     * @param reader input to recognize.
+     * @return verdict and offset where the parse finished.
+     * @throws IOException if reading fails.
+     */
+    public ParseResult parse(Reader reader) throws IOException {
+        return parse(reader, null);
+    }
+
+    /**
+     * Recognizes the chars of a reader reporting its steps to listener, the
+     * reader isn't closed.
+     *
+     * @param reader input to recognize.
+     * @param listener parse listener, may be null.
+     * @return verdict and offset where the parse finished.
+     * @throws IOException if reading fails.
+     */
+    public ParseResult parse(Reader reader, ParseListener listener) throws IOException {
+        ParseInput input = grammar.input(reader, bufferSize);
+        try {
+            boolean accepted = grammar.parse(input, listener, null);
+            return new ParseResult(accepted, input.offset);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Recognizes the bytes of a channel decoded with charset, the channel
+     * isn't closed.
+     *
+     * @param channel input to recognize.
+     * @param charset input charset.
+     * @return verdict and offset in chars where the parse finished.
+     * @throws IOException if reading or decoding fails.
+     */
+    public ParseResult parse(ReadableByteChannel channel, Charset charset) throws IOException {
+        Reader reader = Channels.newReader(channel, charset.newDecoder(), bufferSize);
+        return parse(reader, null);
+    }
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Interns grammar symbols into dense int ids, so productions are held as id
+ * arrays and analyses never scan strings again. Terminals and non terminals
+ * live in separate name spaces, a quoted 'A' terminal and the A non terminal
+ * get different ids.
+ *
+ * Productions are written in one of two notations:
+ * <ul>
+ * <li>Compact, every code point is a symbol, uppercase ones are non
+ * terminals, like "TX" or "(E)".</li>
+ * <li>Spaced, symbols are separated by whitespace, quoted symbols are
+ * terminals and unquoted ones are non terminals if they start with an
+ * uppercase letter, like "Expr '+' Term" or "while Cond do Stmt".</li>
+ * </ul>
+ * '&amp;' stands for epsilon in both notations and is dropped. A grammar
+ * uses one notation for all its productions.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class SymbolTable {
+
+    private final ArrayList<String> names;
+    private final BitSet terminals;
+    private final HashMap<String, Integer> terminalIds;
+    private final HashMap<String, Integer> nonTerminalIds;
+
+    /**
+     * SymbolTable builder.
+     */
+    public SymbolTable() {
+        names = new ArrayList();
+        terminals = new BitSet();
+        terminalIds = new HashMap();
+        nonTerminalIds = new HashMap();
+    }
+
+    /**
+     * Get the id of a terminal, interning it if it is new.
+     *
+     * @param name terminal identifier.
+     * @return terminal id.
+     */
+    public int terminal(String name) {
+        Integer id = terminalIds.get(name);
+        if (id == null) {
+            id = add(name);
+            terminals.set(id);
+            terminalIds.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Get the id of a non terminal, interning it if it is new.
+     *
+     * @param name non terminal identifier.
+     * @return non terminal id.
+     */
+    public int nonTerminal(String name) {
+        Integer id = nonTerminalIds.get(name);
+        if (id == null) {
+            id = add(name);
+            nonTerminalIds.put(name, id);
+        }
+        return id;
+    }
+
+    private int add(String name) {
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    /**
+     * Get the identifier of a symbol.
+     *
+     * @param id symbol id.
+     * @return symbol identifier.
+     */
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Determines whether a symbol is terminal.
+     *
+     * @param id symbol id.
+     * @return true if the symbol is terminal.
+     */
+    public boolean isTerminal(int id) {
+        return terminals.get(id);
+    }
+
+    /**
+     * Returns the count of interned symbols, ids go from 0 to size - 1.
+     *
+     * @return symbols count.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Determines whether alpha is written in the spaced notation, that is it
+     * has whitespace or quotes.
+     *
+     * @param alpha production body.
+     * @return true if alpha has to be split by whitespace.
+     */
+    public static boolean isSpaced(String alpha) {
+        for (int i = 0; i < alpha.length(); i++) {
+            char c = alpha.charAt(i);
+            if (Character.isWhitespace(c) || c == '\'' || c == '"') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether a grammar is written in the spaced notation, that is
+     * one of its heads is longer than one code point or one of its bodies is
+     * spaced. The notation isn't guessed per production, "S->Expr" next to
+     * "Expr -> Term '+' Expr" reads Expr as one symbol.
+     *
+     * @param productions productions written like "A->alpha".
+     * @return true if every body has to be split by whitespace.
+     */
+    public static boolean isSpaced(List<String> productions) {
+        for (String production : productions) {
+            int arrow = production.indexOf("->");
+            if (arrow >= 0) {
+                String head = production.substring(0, arrow).trim();
+                if (head.codePointCount(0, head.length()) > 1 || isSpaced(production.substring(arrow + 2).trim())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates a production body into symbol ids, the notation is guessed
+     * with isSpaced.
+     *
+     * @param alpha production body.
+     * @return symbol ids, empty for epsilon.
+     * @throws IllegalArgumentException if a quote isn't closed.
+     */
+    public int[] parse(String alpha) throws IllegalArgumentException {
+        return parse(alpha, isSpaced(alpha));
+    }
+
+    /**
+     * Translates a production body into symbol ids.
+     *
+     * @param alpha production body.
+     * @param spaced true to split alpha by whitespace, false to take every
+     * code point as a symbol.
+     * @return symbol ids, empty for epsilon.
+     * @throws IllegalArgumentException if a quote isn't closed.
+     */
+    public int[] parse(String alpha, boolean spaced) throws IllegalArgumentException {
+        int[] symbols = new int[alpha.length()];
+        int length = 0;
+        int i = 0;
+
+        while (i < alpha.length()) {
+            int codePoint = alpha.codePointAt(i);
+            if (!spaced) {
+                i += Character.charCount(codePoint);
+                if (codePoint != '&') {
+                    String name = new String(Character.toChars(codePoint));
+                    symbols[length++] = Character.isUpperCase(codePoint) ? nonTerminal(name) : terminal(name);
+                }
+            } else if (Character.isWhitespace(codePoint)) {
+                i += Character.charCount(codePoint);
+            } else if (codePoint == '\'' || codePoint == '"') {
+                int close = alpha.indexOf(codePoint, i + 1);
+                if (close <= i + 1) {
+                    throw new IllegalArgumentException("Unclosed or empty quote at " + i + " in " + alpha);
+                }
+                symbols[length++] = terminal(alpha.substring(i + 1, close));
+                i = close + 1;
+            } else {
+                int j = i;
+                while (j < alpha.length() && !Character.isWhitespace(alpha.charAt(j))
+                        && alpha.charAt(j) != '\'' && alpha.charAt(j) != '"') {
+                    j++;
+                }
+                String name = alpha.substring(i, j);
+                if (!name.equals("&")) {
+                    symbols[length++] = Character.isUpperCase(codePoint) ? nonTerminal(name) : terminal(name);
+                }
+                i = j;
+            }
+        }
+        return Arrays.copyOf(symbols, length);
+    }
+
+    /**
+     * Formats symbol ids back into a production body. Bodies made of one code
+     * point symbols which read the same in the compact notation are written
+     * compact, the rest spaced with the terminals quoted when needed.
+     *
+     * @param symbols symbol ids.
+     * @return production body, "&amp;" for epsilon.
+     */
+    public String format(int[] symbols) {
+        if (symbols.length == 0) {
+            return "&";
+        }
+
+        boolean compact = true;
+        for (int i = 0; i < symbols.length && compact; i++) {
+            String name = names.get(symbols[i]);
+            compact = name.codePointCount(0, name.length()) == 1
+                    && isTerminal(symbols[i]) != Character.isUpperCase(name.codePointAt(0))
+                    && !isSpaced(name) && !name.equals("&");
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int symbol : symbols) {
+            String name = names.get(symbol);
+            if (compact) {
+                builder.append(name);
+                continue;
+            }
+
+            if (builder.length() > 0) {
+                builder.append(' ');
+            }
+            if (isTerminal(symbol) && (Character.isUpperCase(name.codePointAt(0)) || isSpaced(name) || name.equals("&"))) {
+                char quote = name.indexOf('\'') < 0 ? '\'' : '"';
+                builder.append(quote).append(name).append(quote);
+            } else {
+                builder.append(name);
+            }
+        }
+        return builder.toString();
+    }
+}
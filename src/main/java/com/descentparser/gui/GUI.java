@@ -1,8 +1,8 @@
 package com.descentparser.gui;
 
 import com.descentparser.tools.FileTools;
-import com.descentparser.grammar.Grammar;
-import com.descentparser.grammar.Head;
+import com.descentparser.grammar.CompiledGrammar;
+import com.descentparser.grammar.GrammarCache;
 import java.util.ArrayList;
 import java.io.File;
 import java.io.IOException;
@@ -32,7 +32,8 @@ import javax.swing.table.DefaultTableModel;
 public class GUI extends javax.swing.JFrame {
 
     ArrayList<String> productions = null;
-    Grammar grammar = null;
+    CompiledGrammar grammar = null;
+    final GrammarCache cache = new GrammarCache(GrammarCache.defaultDirectory());
 
     /**
      * Creates new form GUI
@@ -300,15 +301,20 @@ public class GUI extends javax.swing.JFrame {
     private void analizeActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_analizeActionPerformed
         boolean ok = true;
         if (productions != null) {
-            grammar = new Grammar(productions);
             try {
-                grammar.processGrammar();
+                grammar = cache.load(productions);
             } catch (NullPointerException ex) {
+                grammar = null;
                 noticeField.setText("¡Se han encontrado no terminales sin producciones asociadas!");
                 ok = false;
+            } catch (IllegalArgumentException ex) {
+                grammar = null;
+                noticeField.setText("¡Se han encontrado producciones que solo derivan su cabeza!");
+                ok = false;
             }
         } else {
             noticeField.setText("¡Debe leer un archivo!");
+            ok = false;
         }
         
         if (ok){
@@ -325,10 +331,10 @@ public class GUI extends javax.swing.JFrame {
             };
             mTable.setModel(mModel);
 
-            String[] columns = new String[grammar.terminalSymbols.size() + 1];
+            String[] columns = new String[grammar.getTerminalCount() + 1];
             columns[0] = "Term\\no Term";
             for (int i = 1; i < columns.length; i++) {
-                columns[i] = grammar.terminalSymbols.get(i - 1);
+                columns[i] = grammar.getTerminal(i - 1);
             }
 
             mModel.setColumnIdentifiers(columns);
@@ -339,20 +345,23 @@ public class GUI extends javax.swing.JFrame {
                 mTable.getColumnModel().getColumn(i).setPreferredWidth(70);
             }
 
-            grammar.nonTerminals.forEach(A -> {
-                Head head = grammar.heads.get(A);
-                freeGrammarText.append(head.toString());
+            for (int id = 0; id < grammar.getProductionCount(); id++) {
+                freeGrammarText.append(grammar.getNonTerminal(grammar.getProductionHead(id)) + "->"
+                        + grammar.getProductionAlpha(id) + "\n");
+            }
+            for (int row = 0; row < grammar.getNonTerminalCount(); row++) {
+                String A = grammar.getNonTerminal(row);
                 firstModel.addRow(new Object[]{
-                    head.getSymbol(),
-                    head.getFirst(),
-                    head.getNext()});
+                    A,
+                    grammar.getFirst(row),
+                    grammar.getNext(row)});
                 String[] rowString = new String[columns.length];
                 rowString[0] = A;
                 for (int i = 1; i < columns.length; i++) {
-                    rowString[i] = grammar.mTable.getProductionString(A, (String) columns[i]);
+                    rowString[i] = grammar.getProductionString(A, (String) columns[i]);
                 }
                 mModel.addRow(rowString);
-            });
+            }
 
             noticeField.setText("¡Gramática analizada con éxito!");
         }
@@ -394,7 +403,7 @@ public class GUI extends javax.swing.JFrame {
     }//GEN-LAST:event_selectActionPerformed
 
     private void analize1ActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_analize1ActionPerformed
-        ArrayList<String[]> results = grammar.match(testStr.getText());
+        ArrayList<String[]> results = grammar != null ? grammar.match(testStr.getText()) : null;
         DefaultTableModel model = (DefaultTableModel) ackTable.getModel();
         model.setRowCount(0);
 
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.lexer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * Splits input into terminals with a table driven DFA. Terminals are declared
+ * as literals or simple regular expressions, see Regex, and the DFA is built
+ * once on compile. Scanning takes the longest match, ties go to the rule
+ * declared first, so keywords should be declared before identifiers.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class Lexer {
+
+    /**
+     * Returned by Scanner.next at the end of the input.
+     */
+    public static final int END = -1;
+    /**
+     * Returned by Scanner.next when no rule matches.
+     */
+    public static final int ERROR = -2;
+
+    private final ArrayList<String> terminals;
+    private final ArrayList<String> patterns;
+    private final ArrayList<Boolean> literals;
+    private boolean[] skips;
+    private int[] asciiClasses;
+    private int[] classStarts;
+    private int classCount;
+    private int[] transitions;
+    private int[] accepts;
+
+    /**
+     * Lexer builder.
+     */
+    public Lexer() {
+        terminals = new ArrayList();
+        patterns = new ArrayList();
+        literals = new ArrayList();
+    }
+
+    /**
+     * Declares a terminal matched by its own text.
+     *
+     * @param text terminal identifier and text.
+     */
+    public void addLiteral(String text) {
+        addLiteral(text, text);
+    }
+
+    /**
+     * Declares a terminal matched by a literal text.
+     *
+     * @param terminal terminal identifier.
+     * @param text matched text.
+     */
+    public void addLiteral(String terminal, String text) {
+        add(terminal, text, true);
+    }
+
+    /**
+     * Declares a terminal matched by a regular expression.
+     *
+     * @param terminal terminal identifier.
+     * @param regex regular expression.
+     */
+    public void addPattern(String terminal, String regex) {
+        add(terminal, regex, false);
+    }
+
+    /**
+     * Declares text to skip between terminals, like whitespace.
+     *
+     * @param regex regular expression.
+     */
+    public void skip(String regex) {
+        add(null, regex, false);
+    }
+
+    private synchronized void add(String terminal, String pattern, boolean literal) {
+        if (transitions != null) {
+            throw new IllegalStateException("Lexer is already compiled.");
+        }
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Empty pattern.");
+        }
+        terminals.add(terminal);
+        patterns.add(pattern);
+        literals.add(literal);
+    }
+
+    /**
+     * Returns the count of declared rules, rule ids go from 0 to count - 1 in
+     * declaration order.
+     *
+     * @return rules count.
+     */
+    public int getRuleCount() {
+        return terminals.size();
+    }
+
+    /**
+     * Get the terminal of a rule.
+     *
+     * @param rule rule id.
+     * @return terminal identifier, null for skipped rules.
+     */
+    public String getTerminal(int rule) {
+        return terminals.get(rule);
+    }
+
+    /**
+     * Returns the count of DFA states, the lexer is compiled if needed.
+     *
+     * @return states count.
+     */
+    public int getStateCount() {
+        compile();
+        return accepts.length;
+    }
+
+    /**
+     * Builds the DFA, no rules can be declared after it. Code points are
+     * split in classes whose members move every state the same way, so
+     * transitions are a states by classes table.
+     *
+     * @throws IllegalArgumentException if a pattern is misshapen.
+     */
+    public synchronized void compile() throws IllegalArgumentException {
+        if (transitions != null) {
+            return;
+        }
+
+        Nfa nfa = new Nfa();
+        int start = nfa.state();
+        skips = new boolean[terminals.size()];
+        for (int rule = 0; rule < terminals.size(); rule++) {
+            int[] fragment = literals.get(rule)
+                    ? Regex.literal(nfa, patterns.get(rule)) : Regex.compile(nfa, patterns.get(rule));
+            nfa.epsilon(start, fragment[0]);
+            nfa.accepts.set(fragment[1], rule);
+            skips[rule] = terminals.get(rule) == null;
+        }
+
+        TreeSet<Integer> bounds = new TreeSet();
+        bounds.add(0);
+        for (int[] edge : nfa.edges) {
+            bounds.add(edge[1]);
+            if (edge[2] < Character.MAX_CODE_POINT) {
+                bounds.add(edge[2] + 1);
+            }
+        }
+        classStarts = bounds.stream().mapToInt(Integer::intValue).toArray();
+        classCount = classStarts.length;
+        asciiClasses = new int[128];
+        for (int c = 0; c < asciiClasses.length; c++) {
+            asciiClasses[c] = wideClassOf(c);
+        }
+
+        ArrayList<ArrayList<int[]>> moves = new ArrayList(nfa.size());
+        for (int s = 0; s < nfa.size(); s++) {
+            moves.add(new ArrayList());
+        }
+        for (int[] edge : nfa.edges) {
+            moves.get(edge[0]).add(new int[]{classOf(edge[1]), classOf(edge[2]), edge[3]});
+        }
+
+        ArrayList<BitSet> states = new ArrayList();
+        HashMap<BitSet, Integer> ids = new HashMap();
+        ArrayList<int[]> rows = new ArrayList();
+        BitSet initial = new BitSet();
+        initial.set(start);
+        closure(nfa, initial);
+        states.add(initial);
+        ids.put(initial, 0);
+
+        for (int d = 0; d < states.size(); d++) {
+            BitSet state = states.get(d);
+            BitSet[] targets = new BitSet[classCount];
+            for (int s = state.nextSetBit(0); s >= 0; s = state.nextSetBit(s + 1)) {
+                for (int[] move : moves.get(s)) {
+                    for (int c = move[0]; c <= move[1]; c++) {
+                        if (targets[c] == null) {
+                            targets[c] = new BitSet();
+                        }
+                        targets[c].set(move[2]);
+                    }
+                }
+            }
+
+            int[] row = new int[classCount];
+            Arrays.fill(row, -1);
+            for (int c = 0; c < classCount; c++) {
+                if (targets[c] != null) {
+                    closure(nfa, targets[c]);
+                    Integer target = ids.get(targets[c]);
+                    if (target == null) {
+                        target = states.size();
+                        states.add(targets[c]);
+                        ids.put(targets[c], target);
+                    }
+                    row[c] = target;
+                }
+            }
+            rows.add(row);
+        }
+
+        transitions = new int[states.size() * classCount];
+        accepts = new int[states.size()];
+        for (int d = 0; d < states.size(); d++) {
+            System.arraycopy(rows.get(d), 0, transitions, d * classCount, classCount);
+            int rule = -1;
+            BitSet state = states.get(d);
+            for (int s = state.nextSetBit(0); s >= 0; s = state.nextSetBit(s + 1)) {
+                int accepted = nfa.accepts.get(s);
+                if (accepted >= 0 && (rule < 0 || accepted < rule)) {
+                    rule = accepted;
+                }
+            }
+            accepts[d] = rule;
+        }
+    }
+
+    private static void closure(Nfa nfa, BitSet states) {
+        ArrayDeque<Integer> pending = new ArrayDeque();
+        states.stream().forEach(pending::add);
+        while (!pending.isEmpty()) {
+            for (int t : nfa.epsilons.get(pending.poll())) {
+                if (!states.get(t)) {
+                    states.set(t);
+                    pending.add(t);
+                }
+            }
+        }
+    }
+
+    private int classOf(int codePoint) {
+        return codePoint < asciiClasses.length ? asciiClasses[codePoint] : wideClassOf(codePoint);
+    }
+
+    private int wideClassOf(int codePoint) {
+        int i = Arrays.binarySearch(classStarts, codePoint);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * Returns a scanner over str from its beginning, the lexer is compiled if
+     * needed.
+     *
+     * @param str input to split.
+     * @return new scanner.
+     */
+    public Scanner scanner(CharSequence str) {
+        return scanner(str, 0);
+    }
+
+    /**
+     * Returns a scanner over str, the lexer is compiled if needed.
+     *
+     * @param str input to split.
+     * @param from char index where scanning starts.
+     * @return new scanner.
+     */
+    public Scanner scanner(CharSequence str, int from) {
+        compile();
+        return new Scanner(str, from);
+    }
+
+    /**
+     * Returns a scanner over the chars of a reader, the lexer is compiled if
+     * needed.
+     *
+     * @param reader input to split, it isn't closed.
+     * @param bufferSize chars read from the reader at once.
+     * @return new scanner.
+     */
+    public StreamScanner scanner(Reader reader, int bufferSize) {
+        compile();
+        return new StreamScanner(reader, bufferSize);
+    }
+
+    /**
+     * Cursor which pulls one rule at a time from an input, skipped rules are
+     * never returned.
+     */
+    public final class Scanner {
+
+        private final CharSequence str;
+        private int start;
+        private int position;
+
+        private Scanner(CharSequence str, int from) {
+            this.str = str;
+            this.start = from;
+            this.position = from;
+        }
+
+        /**
+         * Reads the next rule.
+         *
+         * @return rule id, END at the end of the input or ERROR if no rule
+         * matches at getStart, then the scanner moves one code point.
+         */
+        public int next() {
+            int length = str.length();
+            while (true) {
+                start = position;
+                if (position >= length) {
+                    return END;
+                }
+
+                int rule = ERROR;
+                int end = position;
+                int state = 0;
+                int i = position;
+                while (i < length) {
+                    int codePoint = Character.codePointAt(str, i);
+                    state = transitions[state * classCount + classOf(codePoint)];
+                    if (state < 0) {
+                        break;
+                    }
+                    i += Character.charCount(codePoint);
+                    if (accepts[state] >= 0) {
+                        rule = accepts[state];
+                        end = i;
+                    }
+                }
+
+                if (rule == ERROR) {
+                    position += Character.charCount(Character.codePointAt(str, position));
+                    return ERROR;
+                }
+                position = end;
+                if (!skips[rule]) {
+                    return rule;
+                }
+            }
+        }
+
+        /**
+         * Returns where the last read rule starts.
+         *
+         * @return char index.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Returns where the last read rule ends.
+         *
+         * @return char index.
+         */
+        public int getEnd() {
+            return position;
+        }
+    }
+
+    /**
+     * Scanner over a reader which only holds a buffer of its chars. Refilling
+     * keeps the chars from the start of the rule being matched, the buffer
+     * only grows when one rule is longer than it.
+     */
+    public final class StreamScanner {
+
+        private final Reader reader;
+        private char[] buffer;
+        private int limit;
+        private long base;
+        private int start;
+        private int position;
+        private boolean ended;
+
+        private StreamScanner(Reader reader, int bufferSize) {
+            this.reader = reader;
+            this.buffer = new char[Math.max(bufferSize, 2)];
+        }
+
+        /**
+         * Reads the next rule.
+         *
+         * @return rule id, END at the end of the input or ERROR if no rule
+         * matches at getStart, then the scanner moves one code point.
+         * @throws UncheckedIOException if reading fails.
+         */
+        public int next() throws UncheckedIOException {
+            while (true) {
+                start = position;
+                if (position >= limit && !fill()) {
+                    return END;
+                }
+
+                int rule = ERROR;
+                int end = position;
+                int state = 0;
+                int i = position;
+                while (true) {
+                    if (i + 1 >= limit && (i >= limit || Character.isHighSurrogate(buffer[i]))) {
+                        // Refilling moves the chars from start to the beginning of the buffer.
+                        int shift = start;
+                        boolean filled = fill();
+                        i -= shift;
+                        end -= shift;
+                        if (!filled && i >= limit) {
+                            break;
+                        }
+                    }
+                    int codePoint = Character.codePointAt(buffer, i, limit);
+                    state = transitions[state * classCount + classOf(codePoint)];
+                    if (state < 0) {
+                        break;
+                    }
+                    i += Character.charCount(codePoint);
+                    if (accepts[state] >= 0) {
+                        rule = accepts[state];
+                        end = i;
+                    }
+                }
+
+                if (rule == ERROR) {
+                    position += Character.charCount(Character.codePointAt(buffer, position, limit));
+                    return ERROR;
+                }
+                position = end;
+                if (!skips[rule]) {
+                    return rule;
+                }
+            }
+        }
+
+        /**
+         * Reads more chars after moving the ones from start to the beginning
+         * of the buffer.
+         *
+         * @return false at the end of the input.
+         */
+        private boolean fill() {
+            if (ended) {
+                return false;
+            }
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, limit - start);
+                base += start;
+                limit -= start;
+                position -= start;
+                start = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            try {
+                int n;
+                do {
+                    n = reader.read(buffer, limit, buffer.length - limit);
+                } while (n == 0);
+                if (n < 0) {
+                    ended = true;
+                    return false;
+                }
+                limit += n;
+                return true;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /**
+         * Returns where the last read rule starts.
+         *
+         * @return chars read before the rule.
+         */
+        public long getStart() {
+            return base + start;
+        }
+
+        /**
+         * Returns where the last read rule ends.
+         *
+         * @return chars read up to the end of the rule.
+         */
+        public long getEnd() {
+            return base + position;
+        }
+    }
+}
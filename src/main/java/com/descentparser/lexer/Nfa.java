@@ -0,0 +1,60 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.lexer;
+
+import java.util.ArrayList;
+
+/**
+ * Nondeterministic automaton built by Thompson construction, its edges are
+ * code point ranges or epsilon.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+final class Nfa {
+
+    /**
+     * Accepted rule of every state, -1 if the state doesn't accept.
+     */
+    final ArrayList<Integer> accepts = new ArrayList();
+    final ArrayList<ArrayList<Integer>> epsilons = new ArrayList();
+    /**
+     * Range edges as {from, lo, hi, to}.
+     */
+    final ArrayList<int[]> edges = new ArrayList();
+
+    /**
+     * Adds a state.
+     *
+     * @return state id.
+     */
+    int state() {
+        accepts.add(-1);
+        epsilons.add(new ArrayList());
+        return accepts.size() - 1;
+    }
+
+    void epsilon(int from, int to) {
+        epsilons.get(from).add(to);
+    }
+
+    void range(int from, int lo, int hi, int to) {
+        edges.add(new int[]{from, lo, hi, to});
+    }
+
+    int size() {
+        return accepts.size();
+    }
+}
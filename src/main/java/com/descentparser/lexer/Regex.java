@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.lexer;
+
+import java.util.ArrayList;
+
+/**
+ * Translates simple regular expressions into Nfa fragments. Supported are
+ * concatenation, '|', '*', '+', '?', groups, '.', classes like [a-z] or
+ * [^0-9] and the escapes \d \w \s \D \W \S \n \r \t \f, any other escaped
+ * char stands for itself.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+final class Regex {
+
+    private final Nfa nfa;
+    private final String pattern;
+    private int i;
+
+    private Regex(Nfa nfa, String pattern) {
+        this.nfa = nfa;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Adds the states of pattern to nfa.
+     *
+     * @param nfa automaton which receives the states.
+     * @param pattern regular expression.
+     * @return {start, end} states of the fragment.
+     * @throws IllegalArgumentException if pattern is misshapen.
+     */
+    static int[] compile(Nfa nfa, String pattern) throws IllegalArgumentException {
+        Regex regex = new Regex(nfa, pattern);
+        int[] fragment = regex.alternation();
+        if (regex.i < pattern.length()) {
+            throw regex.error("Unexpected ')'");
+        }
+        return fragment;
+    }
+
+    /**
+     * Adds the states of a literal text to nfa.
+     *
+     * @param nfa automaton which receives the states.
+     * @param text literal text.
+     * @return {start, end} states of the fragment.
+     */
+    static int[] literal(Nfa nfa, String text) {
+        int start = nfa.state();
+        int end = start;
+        int j = 0;
+        while (j < text.length()) {
+            int codePoint = text.codePointAt(j);
+            int next = nfa.state();
+            nfa.range(end, codePoint, codePoint, next);
+            end = next;
+            j += Character.charCount(codePoint);
+        }
+        return new int[]{start, end};
+    }
+
+    private int[] alternation() {
+        int[] left = concatenation();
+        if (i >= pattern.length() || pattern.charAt(i) != '|') {
+            return left;
+        }
+
+        int start = nfa.state();
+        int end = nfa.state();
+        nfa.epsilon(start, left[0]);
+        nfa.epsilon(left[1], end);
+        while (i < pattern.length() && pattern.charAt(i) == '|') {
+            i++;
+            int[] right = concatenation();
+            nfa.epsilon(start, right[0]);
+            nfa.epsilon(right[1], end);
+        }
+        return new int[]{start, end};
+    }
+
+    private int[] concatenation() {
+        int start = nfa.state();
+        int end = start;
+        while (i < pattern.length() && pattern.charAt(i) != '|' && pattern.charAt(i) != ')') {
+            int[] fragment = repetition();
+            nfa.epsilon(end, fragment[0]);
+            end = fragment[1];
+        }
+        return new int[]{start, end};
+    }
+
+    private int[] repetition() {
+        int[] fragment = atom();
+        while (i < pattern.length() && "*+?".indexOf(pattern.charAt(i)) >= 0) {
+            char operator = pattern.charAt(i++);
+            int start = nfa.state();
+            int end = nfa.state();
+            nfa.epsilon(start, fragment[0]);
+            nfa.epsilon(fragment[1], end);
+            if (operator != '+') {
+                nfa.epsilon(start, end);
+            }
+            if (operator != '?') {
+                nfa.epsilon(fragment[1], fragment[0]);
+            }
+            fragment = new int[]{start, end};
+        }
+        return fragment;
+    }
+
+    private int[] atom() {
+        int codePoint = pattern.codePointAt(i);
+        i += Character.charCount(codePoint);
+
+        ArrayList<int[]> ranges = new ArrayList();
+        switch (codePoint) {
+            case '(':
+                int[] group = alternation();
+                if (i >= pattern.length() || pattern.charAt(i) != ')') {
+                    throw error("Unclosed group");
+                }
+                i++;
+                return group;
+            case '[':
+                ranges = charClass();
+                break;
+            case '.':
+                ranges.add(new int[]{0, '\n' - 1});
+                ranges.add(new int[]{'\n' + 1, Character.MAX_CODE_POINT});
+                break;
+            case '\\':
+                ranges = escape();
+                break;
+            case '*':
+            case '+':
+            case '?':
+                throw error("Nothing to repeat");
+            default:
+                ranges.add(new int[]{codePoint, codePoint});
+        }
+
+        int start = nfa.state();
+        int end = nfa.state();
+        for (int[] range : ranges) {
+            nfa.range(start, range[0], range[1], end);
+        }
+        return new int[]{start, end};
+    }
+
+    private ArrayList<int[]> charClass() {
+        boolean negated = i < pattern.length() && pattern.charAt(i) == '^';
+        if (negated) {
+            i++;
+        }
+
+        ArrayList<int[]> ranges = new ArrayList();
+        boolean first = true;
+        while (i < pattern.length() && (first || pattern.charAt(i) != ']')) {
+            first = false;
+            int lo = pattern.codePointAt(i);
+            i += Character.charCount(lo);
+            if (lo == '\\') {
+                ArrayList<int[]> escaped = escape();
+                if (escaped.size() != 1 || escaped.get(0)[0] != escaped.get(0)[1]) {
+                    ranges.addAll(escaped);
+                    continue;
+                }
+                lo = escaped.get(0)[0];
+            }
+
+            int hi = lo;
+            if (i + 1 < pattern.length() && pattern.charAt(i) == '-' && pattern.charAt(i + 1) != ']') {
+                i++;
+                hi = pattern.codePointAt(i);
+                i += Character.charCount(hi);
+                if (hi == '\\') {
+                    hi = escape().get(0)[0];
+                }
+                if (hi < lo) {
+                    throw error("Bad range");
+                }
+            }
+            ranges.add(new int[]{lo, hi});
+        }
+        if (i >= pattern.length()) {
+            throw error("Unclosed class");
+        }
+        i++;
+        return negated ? complement(ranges) : ranges;
+    }
+
+    private ArrayList<int[]> escape() {
+        if (i >= pattern.length()) {
+            throw error("Trailing '\\'");
+        }
+        int codePoint = pattern.codePointAt(i);
+        i += Character.charCount(codePoint);
+
+        ArrayList<int[]> ranges = new ArrayList();
+        switch (Character.toLowerCase(codePoint)) {
+            case 'd':
+                ranges.add(new int[]{'0', '9'});
+                break;
+            case 'w':
+                ranges.add(new int[]{'0', '9'});
+                ranges.add(new int[]{'A', 'Z'});
+                ranges.add(new int[]{'_', '_'});
+                ranges.add(new int[]{'a', 'z'});
+                break;
+            case 's':
+                ranges.add(new int[]{'\t', '\r'});
+                ranges.add(new int[]{' ', ' '});
+                break;
+            default:
+                int c = codePoint == 'n' ? '\n' : codePoint == 'r' ? '\r'
+                        : codePoint == 't' ? '\t' : codePoint == 'f' ? '\f' : codePoint;
+                ranges.add(new int[]{c, c});
+                return ranges;
+        }
+        return Character.isUpperCase(codePoint) ? complement(ranges) : ranges;
+    }
+
+    /**
+     * Returns the code points not covered by ranges.
+     *
+     * @param ranges ranges sorted or not, may overlap.
+     * @return complement ranges.
+     */
+    private static ArrayList<int[]> complement(ArrayList<int[]> ranges) {
+        ranges.sort((x, y) -> Integer.compare(x[0], y[0]));
+        ArrayList<int[]> result = new ArrayList();
+        int next = 0;
+        for (int[] range : ranges) {
+            if (range[0] > next) {
+                result.add(new int[]{next, range[0] - 1});
+            }
+            next = Math.max(next, range[1] + 1);
+        }
+        if (next <= Character.MAX_CODE_POINT) {
+            result.add(new int[]{next, Character.MAX_CODE_POINT});
+        }
+        return result;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at " + i + " in " + pattern);
+    }
+}
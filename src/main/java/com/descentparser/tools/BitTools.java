@@ -0,0 +1,84 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.tools;
+
+/**
+ * A tool set for managing bit sets stored in long arrays.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class BitTools {
+
+    /**
+     * Returns how many words are needed to store size bits.
+     *
+     * @param size bits count.
+     * @return words count.
+     */
+    public static int words(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    /**
+     * Turns on a bit.
+     *
+     * @param set bit set.
+     * @param i bit index.
+     */
+    public static void set(long[] set, int i) {
+        set[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * Turns off a bit.
+     *
+     * @param set bit set.
+     * @param i bit index.
+     */
+    public static void clear(long[] set, int i) {
+        set[i >>> 6] &= ~(1L << i);
+    }
+
+    /**
+     * Determines whether a bit is on.
+     *
+     * @param set bit set.
+     * @param i bit index.
+     * @return true if the bit is on.
+     */
+    public static boolean get(long[] set, int i) {
+        return (set[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Adds every bit of source to target.
+     *
+     * @param target bit set to modify.
+     * @param source bit set to add.
+     * @return true if target changed.
+     */
+    public static boolean or(long[] target, long[] source) {
+        boolean changed = false;
+        for (int i = 0; i < target.length; i++) {
+            long word = target[i] | source[i];
+            if (word != target[i]) {
+                target[i] = word;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+}
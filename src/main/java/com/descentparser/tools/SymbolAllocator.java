@@ -0,0 +1,92 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.tools;
+
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Hands out non terminal symbols not used yet in a grammar. Single uppercase
+ * code points are handed out first, in code point order, then names made of
+ * an uppercase letter and a number.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class SymbolAllocator {
+
+    private final HashSet<String> used;
+    private int cursor;
+    private int counter;
+
+    /**
+     * SymbolAllocator builder.
+     */
+    public SymbolAllocator() {
+        used = new HashSet();
+    }
+
+    /**
+     * SymbolAllocator builder.
+     *
+     * @param symbols symbols already used.
+     */
+    public SymbolAllocator(Collection<String> symbols) {
+        used = new HashSet(symbols);
+    }
+
+    /**
+     * Marks a symbol as used.
+     *
+     * @param symbol used symbol.
+     */
+    public void use(String symbol) {
+        used.add(symbol);
+    }
+
+    /**
+     * Determines whether a symbol is used.
+     *
+     * @param symbol symbol to check out.
+     * @return true if the symbol is used.
+     */
+    public boolean isUsed(String symbol) {
+        return used.contains(symbol);
+    }
+
+    /**
+     * Returns a symbol not used yet and marks it as used. The cursor never
+     * goes back, so every code point is checked once for the whole grammar.
+     *
+     * @return free symbol.
+     */
+    public String next() {
+        while (cursor <= Character.MAX_CODE_POINT) {
+            int codePoint = cursor++;
+            if (Character.isUpperCase(codePoint)) {
+                String symbol = new String(Character.toChars(codePoint));
+                if (used.add(symbol)) {
+                    return symbol;
+                }
+            }
+        }
+
+        String symbol;
+        do {
+            symbol = "N" + counter++;
+        } while (!used.add(symbol));
+        return symbol;
+    }
+}
@@ -37,13 +37,14 @@ public class symbolTools {
     }
     
     /**
-     * Determines whether the given simbol is terminal.
+     * Determines whether the given simbol is terminal, that is it doesn't
+     * start with an uppercase letter.
      *
      * @param symbol simbol to check out.
      * @return true if given simbol is terminal.
      */
     public static boolean isTerminal(String symbol) {
-        return symbol.length() == 1 && isTerminal(symbol.charAt(0));
+        return !symbol.isEmpty() && !Character.isUpperCase(symbol.codePointAt(0));
     }
 
     /**
@@ -58,7 +59,9 @@ public class symbolTools {
     }
     
     /**
-     * Looks for an unused in the grammar unicode encoded uppercase symbol.
+     * Looks for an unused in the grammar unicode encoded uppercase symbol,
+     * scanning from the first code point every time. Grammars use a
+     * SymbolAllocator instead.
      * @param nonTerminals nonterminals set where a free symbol is needed.
      * @return if found returns the free symbol in a string.
      */
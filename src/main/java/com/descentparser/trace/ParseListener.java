@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.trace;
+
+/**
+ * Receives the steps of a parse according to its level.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public interface ParseListener {
+
+    /**
+     * Returns which events the listener wants to receive.
+     *
+     * @return listener trace level.
+     */
+    TraceLevel getLevel();
+
+    /**
+     * Called at the beginning of every parse loop iteration, only with
+     * Snapshots level.
+     *
+     * @param step current parse step.
+     */
+    default void step(ParseStep step) {
+    }
+
+    /**
+     * Called every time a non terminal is expanded, with Productions and
+     * Snapshots level.
+     *
+     * @param head expanded non terminal.
+     * @param alpha body of the production used to expand it.
+     */
+    default void production(String head, String alpha) {
+    }
+
+    /**
+     * Called once when the parse finishes.
+     *
+     * @param accepted true if the string was recognized.
+     */
+    default void end(boolean accepted) {
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.trace;
+
+/**
+ * A step of the parse loop, its texts are only built when requested and it is
+ * only valid while the listener call lasts.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public interface ParseStep {
+
+    /**
+     * Formats the parse stack, bottom first.
+     *
+     * @return stack text like "[$, E]".
+     */
+    String getStack();
+
+    /**
+     * Formats the input still not consumed, "$" included.
+     *
+     * @return input text like "[i, +, i, $]".
+     */
+    String getInput();
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.trace;
+
+/**
+ * Base listener that turns parse events into {stack, input, production} rows.
+ * With Productions level stack and input are left empty.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public abstract class RowTrace implements ParseListener {
+
+    private final TraceLevel level;
+    private String[] lastRow;
+
+    /**
+     * RowTrace builder.
+     *
+     * @param level trace level to listen.
+     */
+    protected RowTrace(TraceLevel level) {
+        this.level = level;
+    }
+
+    @Override
+    public TraceLevel getLevel() {
+        return level;
+    }
+
+    @Override
+    public void step(ParseStep step) {
+        lastRow = new String[]{step.getStack(), step.getInput(), ""};
+        addRow(lastRow);
+    }
+
+    @Override
+    public void production(String head, String alpha) {
+        if (level == TraceLevel.Snapshots && lastRow != null) {
+            lastRow[2] = head + "->" + alpha;
+        } else {
+            addRow(new String[]{"", "", head + "->" + alpha});
+        }
+    }
+
+    /**
+     * Stores a new row, production column of the last row added may still
+     * be filled until the next row comes.
+     *
+     * @param row new row.
+     */
+    protected abstract void addRow(String[] row);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.trace;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps every row of a parse in a list.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class TraceCollector extends RowTrace {
+
+    private final ArrayList<String[]> rows;
+
+    /**
+     * TraceCollector builder, collects full snapshots.
+     */
+    public TraceCollector() {
+        this(TraceLevel.Snapshots);
+    }
+
+    /**
+     * TraceCollector builder.
+     *
+     * @param level trace level to collect.
+     */
+    public TraceCollector(TraceLevel level) {
+        super(level);
+        rows = new ArrayList<>();
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+        rows.add(row);
+    }
+
+    /**
+     * Returns collected rows.
+     *
+     * @return rows list.
+     */
+    public ArrayList<String[]> getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.trace;
+
+import java.util.ArrayList;
+
+/**
+ * Keeps only the last rows of a parse, so memory doesn't depend on the input
+ * length.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class TraceRingBuffer extends RowTrace {
+
+    private final String[][] rows;
+    private long count;
+
+    /**
+     * TraceRingBuffer builder.
+     *
+     * @param capacity how many rows are kept.
+     * @param level trace level to keep.
+     */
+    public TraceRingBuffer(int capacity, TraceLevel level) {
+        super(level);
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        rows = new String[capacity][];
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+        rows[(int) (count % rows.length)] = row;
+        count++;
+    }
+
+    /**
+     * Returns how many rows were added, kept or not.
+     *
+     * @return rows count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns kept rows, oldest first.
+     *
+     * @return rows list.
+     */
+    public ArrayList<String[]> getRows() {
+        int size = (int) Math.min(count, rows.length);
+        ArrayList<String[]> result = new ArrayList<>(size);
+        for (long i = count - size; i < count; i++) {
+            result.add(rows[(int) (i % rows.length)]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.trace;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * Writes every row of a parse as a tab separated line as soon as it is
+ * complete.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class TraceWriter extends RowTrace implements Closeable {
+
+    private final Writer writer;
+    private String[] pending;
+
+    /**
+     * TraceWriter builder.
+     *
+     * @param writer where rows are written, it isn't closed by the parse.
+     * @param level trace level to write.
+     */
+    public TraceWriter(Writer writer, TraceLevel level) {
+        super(level);
+        this.writer = writer;
+    }
+
+    /**
+     * TraceWriter builder over a file.
+     *
+     * @param file file to write, it is overwritten.
+     * @param level trace level to write.
+     * @throws IOException if the file can't be opened.
+     */
+    public TraceWriter(File file, TraceLevel level) throws IOException {
+        this(new BufferedWriter(new FileWriter(file)), level);
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+        flushPending();
+        pending = row;
+    }
+
+    @Override
+    public void end(boolean accepted) {
+        flushPending();
+        write(accepted ? "ACCEPT" : "REJECT");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void flushPending() {
+        if (pending != null) {
+            write(getLevel() == TraceLevel.Snapshots
+                    ? pending[0] + "\t" + pending[1] + "\t" + pending[2]
+                    : pending[2]);
+            pending = null;
+        }
+    }
+
+    private void write(String line) {
+        try {
+            writer.write(line);
+            writer.write(System.lineSeparator());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -17,8 +17,13 @@ package com.descentparser.vices;
 
 import com.descentparser.grammar.Head;
 import com.descentparser.grammar.Production;
-import com.descentparser.tools.symbolTools;
+import com.descentparser.grammar.SymbolTable;
+import com.descentparser.tools.SymbolAllocator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Contains tools for detectiong and solving productions(in Head) left
@@ -36,26 +41,25 @@ public class Factoring {
      * @return true if head productions have left side factoring.
      */
     public static boolean hasLeftFactoring(Head head) {
-        ArrayList<Production> productions = head.getProductions();
-        productions.sort((prod1, prod2) -> {
-            return prod1.compareTo(prod2);
-        });
-
-        String simbol = head.getSymbol();
-        int i = 1;
-        while (i < productions.size()) {
-            if (productions.get(i).alpha.charAt(0) == productions.get(i - 1).alpha.charAt(0)) {
-                if (productions.get(i).alpha.substring(0, simbol.length()).compareTo(simbol) != 0) {
-                    return true;
-                }
+        int simbol = head.getSymbolId();
+        HashSet<Integer> firstSymbols = new HashSet();
+        for (Production production : head.getProductions()) {
+            int[] symbols = production.symbols;
+            int first = symbols.length > 0 ? symbols[0] : -1;
+            if (first != simbol && !firstSymbols.add(first)) {
+                return true;
             }
-            i++;
         }
         return false;
     }
 
     /**
-     * Removes left side factoring vice from head productions.
+     * Removes left side factoring vice from head productions in one pass.
+     * Productions are inserted in a prefix trie, every chain of the trie
+     * without branches becomes a common prefix and every node where the
+     * chain branches becomes a new head with the branches as productions.
+     * Productions starting with the head simbol are left for recursion
+     * removal.
      *
      * @param head Head whose productions have left side factoring vice.
      * @param nonTerminals non terinals already used in grammar to whick head
@@ -63,76 +67,116 @@ public class Factoring {
      * @return Heads list as result of removing head left side factoring.
      */
     public static ArrayList<Head> removeLeftSideFactoring(Head head, ArrayList<String> nonTerminals) {
-        ArrayList<Production> productions = head.getProductions();
-        productions.sort((prod1, prod2) -> {
-            return prod1.compareTo(prod2);
-        });
-        int matchStrIndex = 1;
-        int firstMatchProd = 0;
-        int matchProdCount = 1;
-        int i = 1;
-        while (i < productions.size()) {
-            if (matchStrIndex <= productions.get(i).length()
-                    && matchStrIndex <= productions.get(i - 1).length()) {
-                String subS1 = productions.get(i - 1).alpha.substring(0, matchStrIndex);
-                String subS2 = productions.get(i).alpha.substring(0, matchStrIndex);
+        return removeLeftSideFactoring(head, nonTerminals, new SymbolAllocator(nonTerminals));
+    }
 
-                /**
-                 * If the first simbol of both subtrings is the same but is the
-                 * same head simbol it isn't left factoring vice.
-                 */
-                if (subS1.compareTo(subS2) == 0 && subS1.substring(0, 1).compareTo(head.getSymbol()) != 0) {
-                    if (matchStrIndex == 1) {
-                        matchProdCount++;
-                    }
-                    if (i == productions.size() - 1) {
-                        matchStrIndex++;
-                        i = firstMatchProd;
-                    }
-                } else if (matchProdCount == 1) {
-                    firstMatchProd++;
-                } else if (matchStrIndex == 1) {
-                    matchStrIndex++;
-                    i = firstMatchProd;
-                } else {
-                    matchStrIndex--;
-                    break;
-                }
-            } else if (matchProdCount == 1) {
-                firstMatchProd++;
+    /**
+     * Removes left side factoring vice from head productions in one pass,
+     * new heads get their symbols from allocator.
+     *
+     * @param head Head whose productions have left side factoring vice.
+     * @param nonTerminals non terinals already used in grammar to whick head
+     * belongs.
+     * @param allocator free symbols source of the grammar.
+     * @return Heads list as result of removing head left side factoring.
+     */
+    public static ArrayList<Head> removeLeftSideFactoring(Head head, ArrayList<String> nonTerminals, SymbolAllocator allocator) {
+        String simbol = head.getSymbol();
+        int simbolId = head.getSymbolId();
+        Head A = new Head(simbol, head.getSymbolTable());
+        Node root = new Node();
+        head.getProductions().forEach((production) -> {
+            if (production.symbols.length > 0 && production.symbols[0] == simbolId) {
+                A.addProduction(production.symbols);
             } else {
-                matchStrIndex--;
-                break;
+                root.insert(production.symbols);
             }
-            i++;
-        }
+        });
 
         ArrayList<Head> result = new ArrayList();
+        result.add(A);
+        emit(A, root, result, nonTerminals, allocator, nonTerminals.indexOf(simbol) + 1);
 
-        if (matchProdCount > 1) {
-            Head A = new Head(head.getSymbol());
-            Head Asec = new Head(symbolTools.getUnusedUppercase(nonTerminals));
-            nonTerminals.add(nonTerminals.indexOf(head.getSymbol())+1,Asec.getSymbol());
+        if (result.size() == 1) {
+            result.set(0, head);
+        }
+        return result;
+    }
 
-            i = 0;
-            //Alpha is the common substring.
-            A.addProduction(productions.get(firstMatchProd).alpha.substring(0, matchStrIndex) + Asec.getSymbol());
-            while (i < productions.size()) {
-                //Is gamma if doesn't match with the commmon string.
-                if (i < firstMatchProd || i >= firstMatchProd + matchProdCount) {
-                    A.addProduction(productions.get(i).alpha);
-                } else {
-                    String subs = productions.get(i).alpha.substring(matchStrIndex);
-                    Asec.addProduction(subs.isEmpty() ? "&" : subs);
-                }
-                i++;
+    /**
+     * Adds to target a production for every branch of node, branches with
+     * more than one alternative get a new head.
+     *
+     * @param target Head which receives the productions.
+     * @param node trie node whose branches are emitted.
+     * @param result Heads list where new heads are added.
+     * @param nonTerminals non terminals of the grammar.
+     * @param allocator free symbols source of the grammar.
+     * @param position index of nonTerminals where next new head goes.
+     * @return index of nonTerminals after the last new head.
+     */
+    private static int emit(Head target, Node node, ArrayList<Head> result, ArrayList<String> nonTerminals,
+            SymbolAllocator allocator, int position) {
+        if (node.end) {
+            target.addProduction(new int[0]);
+        }
+
+        SymbolTable table = target.getSymbolTable();
+        for (Map.Entry<Integer, Node> branch : node.children.entrySet()) {
+            if (branch.getKey() == Node.EPSILON) {
+                target.addProduction(new int[0]);
+                continue;
             }
 
-            result.add(A);
-            result.add(Asec);
-        }else{
-            result.add(head);
+            int[] prefix = new int[]{branch.getKey()};
+            Node chain = branch.getValue();
+            while (!chain.end && chain.children.size() == 1) {
+                Map.Entry<Integer, Node> only = chain.children.entrySet().iterator().next();
+                prefix = Arrays.copyOf(prefix, prefix.length + 1);
+                prefix[prefix.length - 1] = only.getKey();
+                chain = only.getValue();
+            }
+
+            if (chain.children.isEmpty()) {
+                target.addProduction(prefix);
+            } else {
+                Head Asec = new Head(allocator.next(), table);
+                nonTerminals.add(position++, Asec.getSymbol());
+                result.add(Asec);
+                prefix = Arrays.copyOf(prefix, prefix.length + 1);
+                prefix[prefix.length - 1] = Asec.getSymbolId();
+                target.addProduction(prefix);
+                position = emit(Asec, chain, result, nonTerminals, allocator, position);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Prefix trie node over production symbol ids.
+     */
+    private static class Node {
+
+        /**
+         * Branch key of epsilon productions, so they keep their place among
+         * the other branches.
+         */
+        private static final int EPSILON = -1;
+
+        private final LinkedHashMap<Integer, Node> children = new LinkedHashMap();
+        private boolean end;
+
+        /**
+         * Inserts a production below this node.
+         *
+         * @param symbols production symbol ids.
+         */
+        void insert(int[] symbols) {
+            Node node = symbols.length > 0 ? this : children.computeIfAbsent(EPSILON, (key) -> new Node());
+            for (int symbol : symbols) {
+                node = node.children.computeIfAbsent(symbol, (key) -> new Node());
+            }
+            node.end = true;
         }
-        return result;
     }
 }
@@ -15,11 +15,11 @@
  */
 package com.descentparser.vices;
 
-import com.descentparser.grammar.Grammar;
 import com.descentparser.grammar.Head;
 import com.descentparser.grammar.Production;
-import com.descentparser.tools.symbolTools;
+import com.descentparser.tools.SymbolAllocator;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Contains tools for detecting and solving productions(in Head) left recursion.
@@ -38,10 +38,10 @@ public class Recursion {
     public static boolean hasLeftRecursion(Head head) {
         ArrayList<Production> productions = head.getProductions();
         int i = 0;
-        String simbol = head.getSymbol();
+        int simbol = head.getSymbolId();
         while (i < productions.size()) {
-            String alpha = productions.get(i).alpha;
-            if (alpha.substring(0, simbol.length()).compareTo(simbol) == 0) {
+            int[] symbols = productions.get(i).symbols;
+            if (symbols.length > 0 && symbols[0] == simbol) {
                 return true;
             }
             i++;
@@ -56,23 +56,51 @@ public class Recursion {
      * @param nonTerminals non terminals set of the grammar to which the head
      * belongs.
      * @return Heads list as result of removing head left side recursion.
+     * @throws IllegalArgumentException if a production is the head alone.
      */
-    public static ArrayList<Head> removeLeftSideRecursion(Head head, ArrayList<String> nonTerminals) {
-        String simbol = head.getSymbol();
-        Head A = new Head(simbol);
-        Head Asec = new Head(symbolTools.getUnusedUppercase(nonTerminals));
+    public static ArrayList<Head> removeLeftSideRecursion(Head head, ArrayList<String> nonTerminals) throws IllegalArgumentException {
+        return removeLeftSideRecursion(head, nonTerminals, new SymbolAllocator(nonTerminals));
+    }
+
+    /**
+     * Removes left side recursion from head productions in a new array list,
+     * the new head gets its symbol from allocator.
+     *
+     * @param head Head whose productions has left side recursion.
+     * @param nonTerminals non terminals set of the grammar to which the head
+     * belongs.
+     * @param allocator free symbols source of the grammar.
+     * @return Heads list as result of removing head left side recursion.
+     * @throws IllegalArgumentException if a production is the head alone,
+     * like "A->A", its recursion can't be removed.
+     */
+    public static ArrayList<Head> removeLeftSideRecursion(Head head, ArrayList<String> nonTerminals, SymbolAllocator allocator) throws IllegalArgumentException {
+        int simbol = head.getSymbolId();
+        for (Production production : head.getProductions()) {
+            if (production.symbols.length == 1 && production.symbols[0] == simbol) {
+                throw new IllegalArgumentException("Production " + head.getSymbol() + "->" + head.getSymbol() + " derives only itself.");
+            }
+        }
+        Head A = new Head(head.getSymbol(), head.getSymbolTable());
+        Head Asec = new Head(allocator.next(), head.getSymbolTable());
+        int asec = Asec.getSymbolId();
 
         head.getProductions().forEach((production) -> {
-            if (production.alpha.substring(0, simbol.length()).compareTo(simbol) == 0) {
-                Asec.addProduction(production.alpha.substring(simbol.length()) + Asec.getSymbol());
+            int[] symbols = production.symbols;
+            if (symbols.length > 0 && symbols[0] == simbol) {
+                int[] alpha = Arrays.copyOfRange(symbols, 1, symbols.length + 1);
+                alpha[alpha.length - 1] = asec;
+                Asec.addProduction(alpha);
             } else {
-                A.addProduction(production.alpha + Asec.getSymbol());
+                int[] alpha = Arrays.copyOf(symbols, symbols.length + 1);
+                alpha[alpha.length - 1] = asec;
+                A.addProduction(alpha);
             }
         });
 
         ArrayList<Head> result = new ArrayList();
         if (Asec.getProductions().size() > 0) {
-            Asec.addProduction("&");
+            Asec.addProduction(new int[0]);
             nonTerminals.add(nonTerminals.indexOf(head.getSymbol()) + 1, Asec.getSymbol());
 
             result.add(A);
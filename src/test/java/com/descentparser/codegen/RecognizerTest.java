@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.codegen;
+
+import com.descentparser.grammar.CompiledGrammar;
+import com.descentparser.grammar.Grammar;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the recognizers of SpecializedGrammar and JavaGenerator against
+ * the MTable loop of CompiledGrammar on the benchmark workloads.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class RecognizerTest {
+
+    private static final String[] EXPRESSIONS = {"E->E+T", "E->T", "T->T*F", "T->F", "F->(E)", "F->i"};
+    private static final String[] BRACKETS = {"S->(S)S", "S->[S]S", "S->&"};
+    private static final String[] LISTS = {"L->L,I", "L->I", "I->ab", "I->ac", "I->a"};
+    private static final int LONG = 200000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CompiledGrammar compile(String... productions) {
+        Grammar grammar = new Grammar(new ArrayList(Arrays.asList(productions)));
+        grammar.processGrammar();
+        return grammar.getCompiled();
+    }
+
+    /**
+     * Random short inputs over the chars of the grammar plus long ones
+     * which only the loops of tail recursive non terminals can recognize
+     * without a deep stack.
+     */
+    private static List<String> inputs(String alphabet, String... longs) {
+        Random random = new Random(alphabet.hashCode());
+        List<String> inputs = new ArrayList();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            inputs.add(builder.toString());
+        }
+        for (String piece : longs) {
+            StringBuilder builder = new StringBuilder(LONG + piece.length());
+            while (builder.length() < LONG) {
+                builder.append(piece);
+            }
+            inputs.add(builder.toString());
+            inputs.add(builder.substring(1));
+            inputs.add(builder.substring(0, builder.length() - 1));
+        }
+        return inputs;
+    }
+
+    /**
+     * Compiles the source of JavaGenerator with the system compiler and
+     * returns its static recognize method.
+     */
+    private Method generated(CompiledGrammar grammar, String name) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertNotNull("Tests need a JDK.", compiler);
+        File sources = folder.newFolder();
+        File classes = folder.newFolder();
+        File source = new JavaGenerator(grammar).write(sources, "generated." + name);
+
+        assertEquals(0, compiler.run(null, null, null, "-d", classes.getPath(), "-encoding", "UTF-8", source.getPath()));
+        ClassLoader loader = new URLClassLoader(new URL[]{classes.toURI().toURL()});
+        return loader.loadClass("generated." + name).getMethod("recognize", CharSequence.class);
+    }
+
+    private static boolean invoke(Method recognize, String input) throws Exception {
+        try {
+            return (Boolean) recognize.invoke(null, input);
+        } catch (InvocationTargetException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    private void assertSameVerdicts(String name, CompiledGrammar grammar, List<String> inputs) throws Exception {
+        SpecializedGrammar specialized = new SpecializedGrammar(grammar);
+        Method generated = generated(grammar, name);
+        int accepted = 0;
+
+        for (String input : inputs) {
+            boolean expected = grammar.recognize(input);
+            String label = input.length() > 20 ? input.substring(0, 20) + "... " + input.length() : input;
+            assertEquals(label, expected, specialized.recognize(input));
+            assertEquals(label, expected, invoke(generated, input));
+            if (expected) {
+                accepted++;
+            }
+        }
+        assertTrue(accepted > 0);
+    }
+
+    @Test
+    public void expressionsMatchCompiledGrammar() throws Exception {
+        assertSameVerdicts("Expressions", compile(EXPRESSIONS), inputs("i+*()", "i+", "i*", "(i+i*i)*"));
+    }
+
+    @Test
+    public void bracketsMatchCompiledGrammar() throws Exception {
+        assertSameVerdicts("Brackets", compile(BRACKETS), inputs("()[]", "()", "[]", "([])"));
+    }
+
+    @Test
+    public void listsMatchCompiledGrammar() throws Exception {
+        assertSameVerdicts("Lists", compile(LISTS), inputs("abc,", "a,", "ab,", "ac,"));
+    }
+
+    @Test
+    public void deepNestingThrowsIllegalState() throws Exception {
+        CompiledGrammar grammar = compile(BRACKETS);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000000; i++) {
+            builder.append('(');
+        }
+        for (int i = 0; i < 1000000; i++) {
+            builder.append(')');
+        }
+        String input = builder.toString();
+        assertTrue(grammar.recognize(input));
+
+        try {
+            new SpecializedGrammar(grammar).recognize(input);
+            fail("Specialized recognizer didn't overflow.");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getCause() instanceof StackOverflowError);
+        }
+        try {
+            invoke(generated(grammar, "Deep"), input);
+            fail("Generated recognizer didn't overflow.");
+        } catch (IllegalStateException ex) {
+            assertTrue(ex.getCause() instanceof StackOverflowError);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * Checks for writing and reading compiled grammars.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class CompiledGrammarTest {
+
+    private static CompiledGrammar compile(String... productions) {
+        Grammar grammar = new Grammar(new ArrayList(Arrays.asList(productions)));
+        grammar.processGrammar();
+        return grammar.getCompiled();
+    }
+
+    private static CompiledGrammar roundTrip(CompiledGrammar grammar) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        grammar.write(out);
+        return CompiledGrammar.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static void assertSameTables(CompiledGrammar expected, CompiledGrammar actual) {
+        assertEquals(expected.getNonTerminalCount(), actual.getNonTerminalCount());
+        assertEquals(expected.getTerminalCount(), actual.getTerminalCount());
+        assertEquals(expected.getProductionCount(), actual.getProductionCount());
+        for (int column = 0; column < expected.getTerminalCount(); column++) {
+            assertEquals(expected.getTerminal(column), actual.getTerminal(column));
+        }
+        for (int id = 0; id < expected.getProductionCount(); id++) {
+            assertEquals(expected.getProductionHead(id), actual.getProductionHead(id));
+            assertEquals(expected.getProductionAlpha(id), actual.getProductionAlpha(id));
+            assertArrayEquals(expected.getProductionSymbols(id), actual.getProductionSymbols(id));
+        }
+        for (int row = 0; row < expected.getNonTerminalCount(); row++) {
+            assertEquals(expected.getNonTerminal(row), actual.getNonTerminal(row));
+            assertEquals(expected.getFirst(row), actual.getFirst(row));
+            assertEquals(expected.getNext(row), actual.getNext(row));
+            for (int column = 0; column < expected.getTerminalCount(); column++) {
+                assertEquals(expected.getProductionId(row, column), actual.getProductionId(row, column));
+            }
+        }
+    }
+
+    @Test
+    public void compactGrammarSurvivesRoundTrip() throws IOException {
+        CompiledGrammar grammar = compile("E->TX", "X->+TX", "X->&", "T->FY", "Y->*FY", "Y->&", "F->(E)", "F->i");
+        CompiledGrammar read = roundTrip(grammar);
+
+        assertSameTables(grammar, read);
+        for (String input : new String[]{"", "i", "i+i*i", "(i+i)*i", "i+", "(i", "i)", "a"}) {
+            assertEquals(input, grammar.recognize(input), read.recognize(input));
+        }
+    }
+
+    @Test
+    public void spacedGrammarWithConflictSurvivesRoundTrip() throws IOException {
+        CompiledGrammar grammar = compile("S -> A 'b'", "A -> 'b' A", "A -> &", "A -> 'b'");
+        CompiledGrammar read = roundTrip(grammar);
+
+        assertSameTables(grammar, read);
+        for (String input : new String[]{"", "b", "bb", "bbb", "ba"}) {
+            assertEquals(input, grammar.recognize(input), read.recognize(input));
+        }
+    }
+}
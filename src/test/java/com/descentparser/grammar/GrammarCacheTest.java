@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks for storing compiled grammars in the cache directory.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class GrammarCacheTest {
+
+    private static final List<String> PRODUCTIONS = Arrays.asList(
+            "E->TX", "X->+TX", "X->&", "T->FY", "Y->*FY", "Y->&", "F->(E)", "F->i");
+    private static final String[] INPUTS = {"", "i", "i+i*i", "(i+i)*i", "i+", "(i", "a"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storedGrammarIsReadInsteadOfProcessed() throws IOException {
+        GrammarCache cache = new GrammarCache(folder.newFolder());
+        CompiledGrammar stored = cache.load(PRODUCTIONS);
+        Grammar grammar = new Grammar(new ArrayList(PRODUCTIONS));
+
+        CompiledGrammar read = cache.load(PRODUCTIONS, grammar);
+
+        assertNull(grammar.getCompiled());
+        for (String input : INPUTS) {
+            assertEquals(input, stored.recognize(input), read.recognize(input));
+        }
+    }
+
+    @Test
+    public void damagedFileIsProcessedAgain() throws IOException {
+        GrammarCache cache = new GrammarCache(folder.newFolder());
+        CompiledGrammar stored = cache.load(PRODUCTIONS);
+        File file = cache.getFile(PRODUCTIONS);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file.toPath(), bytes);
+        Grammar grammar = new Grammar(new ArrayList(PRODUCTIONS));
+
+        CompiledGrammar read = cache.load(PRODUCTIONS, grammar);
+
+        assertNotNull(grammar.getCompiled());
+        assertTrue(cache.contains(PRODUCTIONS));
+        for (String input : INPUTS) {
+            assertEquals(input, stored.recognize(input), read.recognize(input));
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Checks that editing a processed grammar gives the tables of processing
+ * the edited productions from scratch.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class GrammarEditorTest {
+
+    private static final List<String> BASE = Arrays.asList(
+            "E->TX", "X->+TX", "X->&", "T->FY", "Y->*FY", "Y->&", "F->(E)", "F->i");
+    private static final String[] EXTRA = {
+        "F->i*F", "X->+E", "T->(E)", "F->n", "X->-TX", "Y->&*", "F->&", "E->n", "T->iY"};
+    private static final List<String> POOL = new ArrayList(BASE);
+    private static final String ALPHABET = "i+*()n-";
+
+    static {
+        POOL.addAll(Arrays.asList(EXTRA));
+    }
+
+    private static List<String> inputs(Random random) {
+        List<String> inputs = new ArrayList();
+        for (int i = 0; i < 300; i++) {
+            StringBuilder builder = new StringBuilder();
+            int length = random.nextInt(9);
+            for (int j = 0; j < length; j++) {
+                builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            inputs.add(builder.toString());
+        }
+        return inputs;
+    }
+
+    private static void assertSameAsFresh(Grammar edited, List<String> productions, List<String> inputs) {
+        Grammar fresh = new Grammar(new ArrayList(productions));
+        fresh.processGrammar();
+
+        assertEquals(productions.toString(), fresh.getConflictCount(), edited.getConflictCount());
+        for (String input : inputs) {
+            assertEquals(productions + " " + input,
+                    fresh.getCompiled().recognize(input), edited.getCompiled().recognize(input));
+        }
+    }
+
+    /**
+     * Lists the productions head by head, in the order their heads first
+     * got productions, which keeps the start symbol of the edited grammar.
+     */
+    private static List<String> lines(LinkedHashMap<String, List<String>> heads) {
+        List<String> lines = new ArrayList();
+        heads.values().forEach(lines::addAll);
+        return lines;
+    }
+
+    @Test
+    public void randomEditsMatchFreshProcessing() {
+        Random random = new Random(25);
+        List<String> inputs = inputs(random);
+        LinkedHashMap<String, List<String>> heads = new LinkedHashMap();
+        BASE.forEach(p -> heads.computeIfAbsent(p.substring(0, 1), A -> new ArrayList()).add(p));
+        Grammar grammar = new Grammar(new ArrayList(BASE));
+        grammar.processGrammar();
+        int conflicts = 0;
+
+        for (int step = 0; step < 400; step++) {
+            List<String> productions = lines(heads);
+            if (random.nextInt(3) > 0) {
+                String production = POOL.get(random.nextInt(POOL.size()));
+                try {
+                    assertEquals(production, !productions.contains(production), grammar.addProduction(production));
+                    if (!productions.contains(production)) {
+                        heads.computeIfAbsent(production.substring(0, 1), A -> new ArrayList()).add(production);
+                    }
+                } catch (NullPointerException ex) {
+                    // A symbol of the production lost its productions, nothing changes.
+                }
+            } else if (!productions.isEmpty()) {
+                String production = productions.get(random.nextInt(productions.size()));
+                try {
+                    assertTrue(production, grammar.removeProduction(production));
+                    String A = production.substring(0, 1);
+                    heads.get(A).remove(production);
+                    if (heads.get(A).isEmpty()) {
+                        heads.remove(A);
+                    }
+                } catch (NullPointerException ex) {
+                    // The head is used by other productions, nothing changes.
+                }
+            }
+            assertSameAsFresh(grammar, lines(heads), inputs);
+            if (grammar.getConflictCount() > 0) {
+                conflicts++;
+            }
+        }
+
+        assertTrue(conflicts > 0);
+    }
+
+    @Test
+    public void addingAndRemovingAConflictRestoresTheTables() {
+        List<String> inputs = inputs(new Random(26));
+        Grammar grammar = new Grammar(new ArrayList(BASE));
+        grammar.processGrammar();
+
+        assertTrue(grammar.addProduction("F->i*F"));
+        assertEquals(1, grammar.getConflictCount());
+        List<String> productions = new ArrayList(BASE);
+        productions.add("F->i*F");
+        assertSameAsFresh(grammar, productions, inputs);
+
+        assertTrue(grammar.removeProduction("F->i*F"));
+        assertFalse(grammar.removeProduction("F->i*F"));
+        assertSameAsFresh(grammar, BASE, inputs);
+    }
+}
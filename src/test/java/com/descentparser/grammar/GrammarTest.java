@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Regression checks for reading and processing grammars.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class GrammarTest {
+
+    private static Grammar process(String... productions) {
+        Grammar grammar = new Grammar(new ArrayList(Arrays.asList(productions)));
+        grammar.processGrammar();
+        return grammar;
+    }
+
+    @Test
+    public void mixedNotationUsesSpacedForEveryLine() {
+        Grammar grammar = process("S -> Expr", "Expr -> Term '+' Expr", "Expr -> Term", "Term -> i");
+
+        assertTrue(grammar.nonTerminals.contains("Expr"));
+        assertFalse(grammar.nonTerminals.contains("E"));
+        assertTrue(grammar.recognize("i+i"));
+        assertFalse(grammar.recognize("i+"));
+    }
+
+    @Test
+    public void compactGrammarSplitsEveryCodePoint() {
+        Grammar grammar = process("S->aS", "S->b");
+
+        assertEquals(Arrays.asList("a", "b", "$"), grammar.terminalSymbols);
+        assertTrue(grammar.recognize("aab"));
+    }
+}
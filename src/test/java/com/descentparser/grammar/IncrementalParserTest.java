@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Checks that incremental reparses give the verdict of a whole parse.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class IncrementalParserTest {
+
+    private static final String[] PIECES = {"i", "+i", "*i", "(i)", "(i+i)", "i*i", "+", ")", "(", ""};
+
+    private static CompiledGrammar compile() {
+        Grammar grammar = new Grammar(new ArrayList(Arrays.asList(
+                "E->TX", "X->+TX", "X->&", "T->FY", "Y->*FY", "Y->&", "F->(E)", "F->i")));
+        grammar.processGrammar();
+        return grammar.getCompiled();
+    }
+
+    private static String expression(Random random, int depth) {
+        StringBuilder builder = new StringBuilder();
+        int terms = 1 + random.nextInt(4);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                builder.append(random.nextBoolean() ? '+' : '*');
+            }
+            if (depth > 0 && random.nextInt(3) == 0) {
+                builder.append('(').append(expression(random, depth - 1)).append(')');
+            } else {
+                builder.append('i');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Replaces removed chars at offset with inserted and checks the verdict
+     * of the update against recognizing the whole text.
+     */
+    private static String edit(CompiledGrammar grammar, IncrementalParser parser, String text,
+            int offset, int removed, String inserted) {
+        String edited = text.substring(0, offset) + inserted + text.substring(offset + removed);
+        assertEquals(edited, grammar.recognize(edited), parser.update(edited, offset, removed, inserted.length()));
+        assertEquals(edited, grammar.recognize(edited), parser.isAccepted());
+        return edited;
+    }
+
+    @Test
+    public void randomEditsMatchWholeParses() {
+        CompiledGrammar grammar = compile();
+        Random random = new Random(24);
+        int accepted = 0;
+        int rejected = 0;
+
+        for (int interval : new int[]{1, 3, 16}) {
+            IncrementalParser parser = new IncrementalParser(grammar, interval);
+            String text = expression(random, 4);
+            assertEquals(text, grammar.recognize(text), parser.parse(text));
+
+            for (int step = 0; step < 2000; step++) {
+                if (random.nextInt(50) == 0) {
+                    String fresh = expression(random, 4);
+                    text = edit(grammar, parser, text, 0, text.length(), fresh);
+                } else {
+                    int offset = random.nextInt(text.length() + 1);
+                    int removed = random.nextInt(Math.min(4, text.length() - offset) + 1);
+                    String inserted = PIECES[random.nextInt(PIECES.length)];
+                    text = edit(grammar, parser, text, offset, removed, inserted);
+                }
+                if (parser.isAccepted()) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+            }
+        }
+
+        assertTrue(accepted > 0);
+        assertTrue(rejected > 0);
+    }
+
+    @Test
+    public void editPastRejectionKeepsTheVerdict() {
+        CompiledGrammar grammar = compile();
+        IncrementalParser parser = new IncrementalParser(grammar, 2);
+        String text = "i+)*i+i*(i+i)+i";
+        assertFalse(parser.parse(text));
+
+        text = edit(grammar, parser, text, 11, 1, "i*i");
+        assertEquals(0, parser.getReparsedLength());
+        text = edit(grammar, parser, text, 2, 1, "i");
+        assertTrue(parser.isAccepted());
+    }
+
+    @Test
+    public void editsChangingTheLengthMatchWholeParses() {
+        CompiledGrammar grammar = compile();
+        IncrementalParser parser = new IncrementalParser(grammar, 2);
+        String text = "i+i*i+i+i*i";
+        assertTrue(parser.parse(text));
+
+        text = edit(grammar, parser, text, 2, 1, "(i+i*(i))");
+        assertTrue(parser.isAccepted());
+        text = edit(grammar, parser, text, 0, 2, "");
+        assertTrue(parser.isAccepted());
+        text = edit(grammar, parser, text, text.length(), 0, "+");
+        assertFalse(parser.isAccepted());
+        text = edit(grammar, parser, text, text.length(), 0, "i");
+        assertTrue(parser.isAccepted());
+    }
+}
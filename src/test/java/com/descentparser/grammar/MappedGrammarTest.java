@@ -0,0 +1,133 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks for mapping table files and rejecting corrupted ones.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class MappedGrammarTest {
+
+    private static final String[] INPUTS = {"", "i", "i+i", "(i*i)+i", "i+", "((i)", "i*(i+i)*i", "ñ"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CompiledGrammar compile() {
+        Grammar grammar = new Grammar(new ArrayList(Arrays.asList(
+                "E->TX", "X->+TX", "X->&", "T->FY", "Y->*FY", "Y->&", "F->(E)", "F->i")));
+        grammar.processGrammar();
+        return grammar.getCompiled();
+    }
+
+    private File write(CompiledGrammar grammar) throws IOException {
+        File file = folder.newFile();
+        MappedGrammar.write(grammar, file);
+        return file;
+    }
+
+    /**
+     * Overwrites one int of a table file.
+     */
+    private static void put(File file, int slot, int value) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(slot * Integer.BYTES, value);
+        Files.write(file.toPath(), bytes.array());
+    }
+
+    private static int get(File file, int slot) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN).getInt(slot * Integer.BYTES);
+    }
+
+    private static void assertCorrupted(File file) throws IOException {
+        try {
+            MappedGrammar.open(file);
+            fail("Corrupted table file was mapped.");
+        } catch (StreamCorruptedException ex) {
+        }
+    }
+
+    @Test
+    public void mappedTablesRecognizeLikeCompiled() throws IOException {
+        CompiledGrammar grammar = compile();
+        MappedGrammar mapped = MappedGrammar.open(write(grammar));
+
+        assertEquals(grammar.getProductionCount(), mapped.getProductionCount());
+        for (int row = 0; row < grammar.getNonTerminalCount(); row++) {
+            for (int column = 0; column < grammar.getTerminalCount(); column++) {
+                assertEquals(grammar.getProductionId(row, column), mapped.getProductionId(row, column));
+            }
+        }
+        for (String input : INPUTS) {
+            assertEquals(input, grammar.recognize(input), mapped.recognize(input));
+        }
+    }
+
+    @Test
+    public void overlappingSectionIsCorrupted() throws IOException {
+        File file = write(compile());
+        put(file, 8, get(file, 8) - 1);
+
+        assertCorrupted(file);
+    }
+
+    @Test
+    public void sectionPastTheFileIsCorrupted() throws IOException {
+        File file = write(compile());
+        put(file, 18, get(file, 19) + 1);
+
+        assertCorrupted(file);
+    }
+
+    @Test
+    public void textIndexPastItsDataIsCorrupted() throws IOException {
+        File file = write(compile());
+        put(file, get(file, 15) + get(file, 2) + get(file, 3), Integer.MAX_VALUE);
+
+        assertCorrupted(file);
+    }
+
+    @Test
+    public void startOutsideNonTerminalsIsCorrupted() throws IOException {
+        File file = write(compile());
+        put(file, 5, get(file, 2) + get(file, 3));
+
+        assertCorrupted(file);
+    }
+
+    @Test
+    public void endOutsideTerminalsIsCorrupted() throws IOException {
+        File file = write(compile());
+        put(file, 6, get(file, 2));
+
+        assertCorrupted(file);
+    }
+}
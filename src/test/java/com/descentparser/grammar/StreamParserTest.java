@@ -0,0 +1,68 @@
+/*
+ * Copyright 2019 José Polo <Github https://github.com/jd45p8>.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.descentparser.grammar;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Checks for parsing readers through a small buffer.
+ *
+ * @author José Polo <Github https://github.com/jd45p8>
+ */
+public class StreamParserTest {
+
+    private static final String FACE = new String(Character.toChars(0x1F600));
+
+    private static CompiledGrammar compile() {
+        Grammar grammar = new Grammar(new ArrayList(Arrays.asList("S->x" + FACE + "S", "S->b")));
+        grammar.processGrammar();
+        return grammar.getCompiled();
+    }
+
+    private static ParseResult parse(CompiledGrammar grammar, String input) throws IOException {
+        ParseResult result = new StreamParser(grammar, 2).parse(new StringReader(input));
+        assertEquals(input, grammar.recognize(input), result.isAccepted());
+        return result;
+    }
+
+    @Test
+    public void surrogatePairAcrossRefillIsAccepted() throws IOException {
+        CompiledGrammar grammar = compile();
+        String input = "x" + FACE + "x" + FACE + "b";
+
+        ParseResult result = parse(grammar, input);
+
+        assertTrue(result.isAccepted());
+        assertEquals(input.length(), result.getOffset());
+    }
+
+    @Test
+    public void surrogatePairAcrossRefillIsRejectedAtItsStart() throws IOException {
+        CompiledGrammar grammar = compile();
+
+        ParseResult result = parse(grammar, "x" + FACE + FACE + "b");
+
+        assertFalse(result.isAccepted());
+        assertEquals(3, result.getOffset());
+    }
+}